@@ -0,0 +1,34 @@
+package Chatterbox;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Builds the task lists shared by the benchmarks: an even mix of todos, deadlines and events
+ * with distinct descriptions and dates spread over a few years.
+ */
+final class BenchmarkTasks {
+    static final LocalDateTime BASE_DATE = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    private BenchmarkTasks() {
+    }
+
+    static ArrayList<Task> create(int taskCount) {
+        ArrayList<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            LocalDateTime date = BASE_DATE.plusMinutes(i * 7L % (3 * 365 * 24 * 60));
+            switch (i % 3) {
+            case 0:
+                tasks.add(new ToDo("read chapter " + i, i % 2 == 0));
+                break;
+            case 1:
+                tasks.add(new Deadline("submit report " + i, date, i % 2 == 0));
+                break;
+            default:
+                tasks.add(new Event("team meeting " + i, date, date.plusHours(2), i % 2 == 0));
+                break;
+            }
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,85 @@
+package Chatterbox;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the allocation of Parser.parseCommand with the split, trim and
+ * exception-fallback parsing it replaced, which is kept here as the baseline.
+ * Run with ./gradlew jmh -PjmhIncludes=ParserAllocationBenchmark -PjmhProfilers=gc
+ * and compare gc.alloc.rate.norm (bytes per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserAllocationBenchmark {
+    private static final DateTimeFormatter INPUT_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
+
+    @Param({
+        "deadline return book /by 2019-12-02 1800",
+        "deadline return book /by 2019-12-02",
+        "event project meeting /from 2019-12-02 1400 /to 2019-12-02 1600",
+        "mark 12"
+    })
+    private String input;
+
+    private Parser parser;
+
+    @Setup
+    public void setUp() {
+        parser = new Parser();
+    }
+
+    @Benchmark
+    public Command singlePass() throws Exception {
+        return parser.parseCommand(input);
+    }
+
+    @Benchmark
+    public Command splitAndTrim() throws Exception {
+        String[] parts = input.trim().split(" ", 2);
+        String commandWord = parts[0].toLowerCase();
+        String arguments = parts.length > 1 ? parts[1] : "";
+        switch (commandWord) {
+        case "mark":
+            return new MarkCommand(Integer.parseInt(arguments.trim()) - 1, true);
+        case "deadline": {
+            String[] byParts = arguments.split("/by ", 2);
+            return new AddDeadlineCommand(byParts[0].trim(), parseFlexibleDateTime(byParts[1].trim()));
+        }
+        case "event": {
+            String[] fromParts = arguments.split("/from ", 2);
+            String[] toParts = fromParts[1].split("/to ", 2);
+            return new AddEventCommand(fromParts[0].trim(), parseFlexibleDateTime(toParts[0].trim()),
+                    parseFlexibleDateTime(toParts[1].trim()));
+        }
+        default:
+            throw new IllegalArgumentException("Unsupported input: " + input);
+        }
+    }
+
+    private static LocalDateTime parseFlexibleDateTime(String dateTimeStr) {
+        try {
+            return LocalDateTime.parse(dateTimeStr, INPUT_DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(dateTimeStr + " 0000", INPUT_DATE_FORMATTER);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package Chatterbox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Parser.parseCommand for a typical input of each command word.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+    @Param({"todo", "deadline", "deadline-date-only", "event", "mark", "delete", "list", "find", "finddate"})
+    private String commandWord;
+
+    private Parser parser;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        parser = new Parser();
+        switch (commandWord) {
+        case "todo":
+            input = "todo read book";
+            break;
+        case "deadline":
+            input = "deadline return book /by 2019-12-02 1800";
+            break;
+        case "deadline-date-only":
+            input = "deadline return book /by 2019-12-02";
+            break;
+        case "event":
+            input = "event project meeting /from 2019-12-02 1400 /to 2019-12-02 1600";
+            break;
+        case "mark":
+            input = "mark 12";
+            break;
+        case "delete":
+            input = "delete 12";
+            break;
+        case "list":
+            input = "list";
+            break;
+        case "find":
+            input = "find book";
+            break;
+        case "finddate":
+            input = "finddate 2019-12-02";
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown command word: " + commandWord);
+        }
+    }
+
+    @Benchmark
+    public Command parseCommand() throws Exception {
+        return parser.parseCommand(input);
+    }
+}
@@ -0,0 +1,89 @@
+package Chatterbox;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full save and load round trip of the text format, and the cost of persisting
+ * a single mutation with a full save compared to patching its status byte in place and to
+ * a journal append, either forced to disk before returning or queued for the background writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StorageBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int taskCount;
+
+    private ArrayList<Task> tasks;
+    private Storage storage;
+    private Storage journalStorage;
+    private Storage asyncJournalStorage;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        tasks = BenchmarkTasks.create(taskCount);
+        Path dir = Files.createTempDirectory("chatterbox-bench");
+        storage = new Storage(dir.resolve("tasks.txt").toString());
+        journalStorage = new Storage(dir.resolve("journal.txt").toString(), true, Integer.MAX_VALUE, Long.MAX_VALUE);
+        asyncJournalStorage = new Storage(dir.resolve("async.txt").toString(), true, Integer.MAX_VALUE,
+                Long.MAX_VALUE);
+        asyncJournalStorage.setDurability(Storage.Durability.ASYNC);
+        storage.save(tasks);
+        journalStorage.save(tasks);
+        asyncJournalStorage.save(tasks);
+        asyncJournalStorage.drain();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        storage.close();
+        journalStorage.close();
+        asyncJournalStorage.close();
+    }
+
+    @Benchmark
+    public ArrayList<Task> saveAndLoad() throws Exception {
+        storage.save(tasks);
+        return storage.load();
+    }
+
+    @Benchmark
+    public void markWithFullSave() throws Exception {
+        storage.save(tasks);
+    }
+
+    @Benchmark
+    public void markWithStatusPatch() throws Exception {
+        storage.saveMark(0, true, tasks);
+    }
+
+    @Benchmark
+    public void markWithJournal() throws Exception {
+        journalStorage.saveMark(0, true, tasks);
+    }
+
+    @Benchmark
+    public void markWithAsyncJournal() throws Exception {
+        asyncJournalStorage.saveMark(0, true, tasks);
+    }
+}
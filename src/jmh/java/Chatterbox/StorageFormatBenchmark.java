@@ -0,0 +1,67 @@
+package Chatterbox;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading and saving the same task list in the text and binary storage formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StorageFormatBenchmark {
+    @Param({"1000", "100000"})
+    private int taskCount;
+
+    private ArrayList<Task> tasks;
+    private Storage textStorage;
+    private Storage binaryStorage;
+
+    @Setup
+    public void setUp() throws Exception {
+        tasks = BenchmarkTasks.create(taskCount);
+
+        Path dir = Files.createTempDirectory("chatterbox-bench");
+        textStorage = new Storage(dir.resolve("tasks.txt").toString());
+        binaryStorage = new Storage(dir.resolve("tasks.bin").toString());
+        textStorage.save(tasks);
+        binaryStorage.save(tasks);
+    }
+
+    @Benchmark
+    public ArrayList<Task> loadText() throws Exception {
+        return textStorage.load();
+    }
+
+    @Benchmark
+    public ArrayList<Task> loadBinary() throws Exception {
+        return binaryStorage.load();
+    }
+
+    @Benchmark
+    public void saveText() throws Exception {
+        textStorage.save(tasks);
+    }
+
+    @Benchmark
+    public void saveBinary() throws Exception {
+        binaryStorage.save(tasks);
+    }
+}
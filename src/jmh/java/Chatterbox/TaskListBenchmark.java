@@ -0,0 +1,60 @@
+package Chatterbox;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures keyword and date searches on a TaskList. The indexes are built during setup,
+ * so the benchmarks measure steady-state queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TaskListBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int taskCount;
+
+    private TaskList tasks;
+
+    @Setup
+    public void setUp() {
+        tasks = new TaskList(BenchmarkTasks.create(taskCount));
+        tasks.findTasksByKeyword("warm up");
+        tasks.findTasksOnDate(BenchmarkTasks.BASE_DATE);
+    }
+
+    @Benchmark
+    public ArrayList<IndexedTask> findRareKeyword() {
+        return tasks.findTasksByKeyword("report 42");
+    }
+
+    @Benchmark
+    public ArrayList<IndexedTask> findCommonKeyword() {
+        return tasks.findTasksByKeyword("meeting");
+    }
+
+    @Benchmark
+    public ArrayList<IndexedTask> findShortKeyword() {
+        return tasks.findTasksByKeyword("42");
+    }
+
+    @Benchmark
+    public ArrayList<IndexedTask> findOnDate() {
+        return tasks.findTasksOnDate(BenchmarkTasks.BASE_DATE.plusDays(100));
+    }
+}
@@ -0,0 +1,24 @@
+package Chatterbox;
+
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Prints the retained heap size per task of a TaskList and a PackedTaskList holding the same tasks,
+ * as measured by JOL. Run with ./gradlew footprintReport.
+ */
+public class TaskListFootprintReport {
+    private static final int TASK_COUNT = 100_000;
+
+    public static void main(String[] args) {
+        TaskList taskList = new TaskList(BenchmarkTasks.create(TASK_COUNT));
+        PackedTaskList packedTaskList = new PackedTaskList(taskList.getAllTasks());
+
+        report("TaskList", GraphLayout.parseInstance(taskList.getAllTasks()));
+        report("PackedTaskList", GraphLayout.parseInstance(packedTaskList));
+    }
+
+    private static void report(String name, GraphLayout layout) {
+        System.out.printf("%-16s %,12d bytes total, %6.1f bytes per task%n",
+                name, layout.totalSize(), (double) layout.totalSize() / TASK_COUNT);
+    }
+}
@@ -0,0 +1,76 @@
+package Chatterbox;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures listing and then saving the whole task list, once with the display and file strings
+ * of the tasks already built and once after every task has been marked, so all are built again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TaskStringBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int taskCount;
+
+    private ArrayList<Task> tasks;
+    private Ui ui;
+    private Storage storage;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        tasks = BenchmarkTasks.create(taskCount);
+        ui = new Ui(InputStream.nullInputStream(), OutputStream.nullOutputStream());
+        Path dir = Files.createTempDirectory("chatterbox-bench");
+        storage = new Storage(dir.resolve("tasks.txt").toString());
+        storage.save(tasks);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        storage.close();
+    }
+
+    @Benchmark
+    public void listAndSave() throws Exception {
+        ui.showTaskList(tasks);
+        ui.flush();
+        storage.save(tasks);
+    }
+
+    @Benchmark
+    public void listAndSaveAfterMarkingAll() throws Exception {
+        for (Task task : tasks) {
+            if (task.isDone()) {
+                task.markAsNotDone();
+            } else {
+                task.markAsDone();
+            }
+        }
+        ui.showTaskList(tasks);
+        ui.flush();
+        storage.save(tasks);
+    }
+}
@@ -0,0 +1,47 @@
+package Chatterbox;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering the full task list, with the output discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class UiBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int taskCount;
+
+    private ArrayList<Task> tasks;
+    private Ui ui;
+
+    @Setup
+    public void setUp() {
+        tasks = BenchmarkTasks.create(taskCount);
+        ui = new Ui(InputStream.nullInputStream(), OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void showTaskList() {
+        ui.showTaskList(tasks);
+        ui.flush();
+    }
+}
@@ -1,15 +1,71 @@
 package Chatterbox;
 // chatterbox_single_file.java
-import java.io.FileWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 class ChatterboxException extends Exception {
     public ChatterboxException(String message) {
@@ -21,6 +77,8 @@ class ChatterboxException extends Exception {
 /**
  * Represents a generic task in the Chatterbox application.
  * Serves as the base class for specific task types such as ToDo, Deadline, and Event.
+ * The display and file strings of a task are built once and kept until it is marked or
+ * given an ID, so listing and saving unchanged tasks do not format them again.
  */
 abstract class Task {
     enum TaskType {
@@ -53,12 +111,22 @@ abstract class Task {
     }
     
     protected String description;
-    protected boolean isDone;
+    protected volatile boolean isDone;
     protected TaskType type;
+    protected int id;
     protected static final DateTimeFormatter DISPLAY_DATE_FORMATTER = 
-        DateTimeFormatter.ofPattern("MMM dd yyyy, h:mm a");
+        DateTimeFormatter.ofPattern("MMM dd yyyy, h:mm a", Locale.ENGLISH);
     protected static final DateTimeFormatter FILE_DATE_FORMATTER = 
         DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
+    private static final String[] MONTH_NAMES = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+    private static final int DISPLAY_STATUS_OFFSET = 4;
+    private static final int FILE_STATUS_OFFSET = 4;
+
+    // Immutable strings, so a stale one seen by another thread is caught by its status check
+    private String displayString;
+    private String fileString;
 
     /**
      * Constructs a new Task with the specified description and type.
@@ -91,6 +159,7 @@ abstract class Task {
      */
     public void markAsDone() {
         this.isDone = true;
+        clearStrings();
     }
 
     /**
@@ -98,6 +167,21 @@ abstract class Task {
      */
     public void markAsNotDone() {
         this.isDone = false;
+        clearStrings();
+    }
+
+    private void clearStrings() {
+        displayString = null;
+        fileString = null;
+    }
+
+    /**
+     * Returns whether this task is done.
+     *
+     * @return True if the task is done, false otherwise.
+     */
+    public boolean isDone() {
+        return isDone;
     }
 
     /**
@@ -118,6 +202,21 @@ abstract class Task {
         return description;
     }
 
+    /**
+     * Returns the ID of the task, which stays the same while other tasks are added and removed.
+     * Tasks are given IDs when they are added to a TaskList or loaded from storage.
+     *
+     * @return Task ID, or 0 if the task has not been given one yet.
+     */
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+        fileString = null;
+    }
+
     /**
      * Returns the icon representing the type of the task.
      *
@@ -129,10 +228,84 @@ abstract class Task {
     
     /**
      * Returns a string representation of the task suitable for file storage.
+     * Built on first use and kept until the task is marked or given an ID.
      *
      * @return File format string for the task.
      */
-    public abstract String toFileFormat();
+    public String toFileFormat() {
+        boolean isDone = this.isDone;
+        String file = fileString;
+        if (file == null || file.charAt(FILE_STATUS_OFFSET) != (isDone ? '1' : '0')) {
+            StringBuilder builder = new StringBuilder(description.length() + 48);
+            builder.append(type.getIcon()).append(" | ").append(isDone ? '1' : '0').append(" | ").append(description);
+            appendFileDates(builder);
+            if (id != 0) {
+                builder.append(" | ").append(id);
+            }
+            file = builder.toString();
+            fileString = file;
+        }
+        return file;
+    }
+
+    /**
+     * Appends the dates of the task to its file format, each after " | ".
+     * Base tasks have no dates.
+     */
+    protected void appendFileDates(StringBuilder builder) {
+    }
+
+    /**
+     * Appends the dates of the task to its display string.
+     * Base tasks have no dates.
+     */
+    protected void appendDisplayDates(StringBuilder builder) {
+    }
+
+    /**
+     * Appends a date as formatted by FILE_DATE_FORMATTER, writing the fixed-width fields directly.
+     */
+    protected static void appendFileDate(StringBuilder builder, LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        if (year < 1 || year > 9999) {
+            builder.append(dateTime.format(FILE_DATE_FORMATTER));
+            return;
+        }
+        appendDigits(builder, year, 4);
+        builder.append('-');
+        appendDigits(builder, dateTime.getMonthValue(), 2);
+        builder.append('-');
+        appendDigits(builder, dateTime.getDayOfMonth(), 2);
+        builder.append(' ');
+        appendDigits(builder, dateTime.getHour(), 2);
+        appendDigits(builder, dateTime.getMinute(), 2);
+    }
+
+    /**
+     * Appends a date as formatted by DISPLAY_DATE_FORMATTER, e.g. "Jan 05 2025, 9:30 AM",
+     * writing the fields directly.
+     */
+    protected static void appendDisplayDate(StringBuilder builder, LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        if (year < 1 || year > 9999) {
+            builder.append(dateTime.format(DISPLAY_DATE_FORMATTER));
+            return;
+        }
+        int hour = dateTime.getHour();
+        builder.append(MONTH_NAMES[dateTime.getMonthValue() - 1]).append(' ');
+        appendDigits(builder, dateTime.getDayOfMonth(), 2);
+        builder.append(' ');
+        appendDigits(builder, year, 4);
+        builder.append(", ").append(hour % 12 == 0 ? 12 : hour % 12).append(':');
+        appendDigits(builder, dateTime.getMinute(), 2);
+        builder.append(hour < 12 ? " AM" : " PM");
+    }
+
+    private static void appendDigits(StringBuilder builder, int value, int width) {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            builder.append((char) ('0' + value / divisor % 10));
+        }
+    }
     
     /**
      * Returns the date and time associated with the task, if any.
@@ -144,14 +317,25 @@ abstract class Task {
         return null; // Base task has no date/time
     }
 
-    @Override
     /**
      * Returns a string representation of the task for display purposes.
+     * Built on first use and kept until the task is marked.
      *
      * @return Display string for the task.
      */
+    @Override
     public String toString() {
-        return getTypeIcon() + getStatusIcon() + " " + description;
+        boolean isDone = this.isDone;
+        String display = displayString;
+        if (display == null || display.charAt(DISPLAY_STATUS_OFFSET) != (isDone ? 'X' : ' ')) {
+            StringBuilder builder = new StringBuilder(description.length() + 64);
+            builder.append('[').append(type.getIcon()).append("][").append(isDone ? 'X' : ' ').append("] ")
+                    .append(description);
+            appendDisplayDates(builder);
+            display = builder.toString();
+            displayString = display;
+        }
+        return display;
     }
 }
 
@@ -163,11 +347,6 @@ class ToDo extends Task {
     public ToDo(String description, boolean isDone) {
         super(description, TaskType.TODO, isDone);
     }
-    
-    @Override
-    public String toFileFormat() {
-        return type.getIcon() + " | " + (isDone ? "1" : "0") + " | " + description;
-    }
 }
 
 class Deadline extends Task {
@@ -193,15 +372,16 @@ class Deadline extends Task {
     }
 
     @Override
-    public String toString() {
-        return getTypeIcon() + getStatusIcon() + " " + description + 
-               " (by: " + by.format(DISPLAY_DATE_FORMATTER) + ")";
+    protected void appendDisplayDates(StringBuilder builder) {
+        builder.append(" (by: ");
+        appendDisplayDate(builder, by);
+        builder.append(')');
     }
     
     @Override
-    public String toFileFormat() {
-        return type.getIcon() + " | " + (isDone ? "1" : "0") + " | " + description + 
-               " | " + by.format(FILE_DATE_FORMATTER);
+    protected void appendFileDates(StringBuilder builder) {
+        builder.append(" | ");
+        appendFileDate(builder, by);
     }
 }
 
@@ -235,17 +415,20 @@ class Event extends Task {
     }
 
     @Override
-    public String toString() {
-        return getTypeIcon() + getStatusIcon() + " " + description + 
-               " (from: " + from.format(DISPLAY_DATE_FORMATTER) + 
-               " to: " + to.format(DISPLAY_DATE_FORMATTER) + ")";
+    protected void appendDisplayDates(StringBuilder builder) {
+        builder.append(" (from: ");
+        appendDisplayDate(builder, from);
+        builder.append(" to: ");
+        appendDisplayDate(builder, to);
+        builder.append(')');
     }
     
     @Override
-    public String toFileFormat() {
-        return type.getIcon() + " | " + (isDone ? "1" : "0") + " | " + description + 
-               " | " + from.format(FILE_DATE_FORMATTER) + 
-               " | " + to.format(FILE_DATE_FORMATTER);
+    protected void appendFileDates(StringBuilder builder) {
+        builder.append(" | ");
+        appendFileDate(builder, from);
+        builder.append(" | ");
+        appendFileDate(builder, to);
     }
 }
 
@@ -253,50 +436,224 @@ class Event extends Task {
 /**
  * Represents a list of tasks in the Chatterbox application.
  * Provides methods to add, remove, retrieve, and search for tasks.
+ * Tasks are kept in slots in the order they were added, and a removed task only empties
+ * its slot, so removal does not shift the tasks after it. Once tasks have been removed,
+ * a Fenwick tree counting the occupied slots translates between list indexes and slots
+ * in O(log n); the slots are compacted when more than half of them are empty.
  */
 class TaskList {
 
         /**
          * Finds tasks whose description contains the given keyword (case-insensitive).
+         * Keywords of at least three characters are answered from a trigram index,
+         * so the cost depends on the number of candidate tasks rather than the list size.
          *
          * @param keyword The keyword to search for.
-         * @return List of matching tasks.
+         * @return List of matching tasks with their indexes, in list order.
          */
-        public ArrayList<Task> findTasksByKeyword(String keyword) {
-            ArrayList<Task> result = new ArrayList<>();
+        public ArrayList<IndexedTask> findTasksByKeyword(String keyword) {
             String lowerKeyword = keyword.toLowerCase();
-            for (Task task : tasks) {
+            if (KeywordIndex.canSearch(lowerKeyword)) {
+                return inListOrder(getKeywordIndex().find(lowerKeyword));
+            }
+
+            ArrayList<IndexedTask> result = new ArrayList<>();
+            int index = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                Task task = slots[slot];
+                if (task == null) {
+                    continue;
+                }
                 if (task.getDescription().toLowerCase().contains(lowerKeyword)) {
-                    result.add(task);
+                    result.add(new IndexedTask(index, task));
                 }
+                index++;
             }
             return result;
         }
-    private ArrayList<Task> tasks;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MIN_COMPACTION_SLOTS = 64;
+
+    private Task[] slots;
+    private int slotCount;
+    private int emptySlotCount;
+    private int[] occupiedSlotTree;
+    private HashMap<Integer, Integer> slotsById;
+    private int nextId = 1;
+    private KeywordIndex keywordIndex;
+    private DateIndex dateIndex;
+    private DateOrderIndex dateOrderIndex;
     
     /**
      * Constructs an empty TaskList.
      */
     public TaskList() {
-        this.tasks = new ArrayList<>();
+        this.slots = new Task[INITIAL_CAPACITY];
     }
     
     /**
      * Constructs a TaskList with the specified list of tasks.
+     * Tasks without an ID are given IDs after the highest ID among the tasks.
      *
      * @param tasks List of tasks to initialise the TaskList with.
      */
     public TaskList(ArrayList<Task> tasks) {
-        this.tasks = tasks;
+        this.slots = tasks.toArray(new Task[Math.max(INITIAL_CAPACITY, tasks.size())]);
+        this.slotCount = tasks.size();
+        assignIds(tasks);
+    }
+
+    /**
+     * Gives the task the next ID if it has none, and otherwise makes sure that later IDs
+     * come after its ID.
+     *
+     * @param task Task being added to the list.
+     */
+    protected void assignId(Task task) {
+        if (task.getId() == 0) {
+            task.setId(nextId++);
+        } else {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+    }
+
+    /**
+     * Gives IDs to those of the given tasks that have none, after all IDs the tasks already have.
+     * A task whose ID is already taken by an earlier task is given a new ID as well.
+     *
+     * @param tasks Tasks the list starts with.
+     */
+    protected void assignIds(List<Task> tasks) {
+        HashSet<Integer> takenIds = new HashSet<>();
+        for (Task task : tasks) {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+        for (Task task : tasks) {
+            if (task.getId() != 0 && !takenIds.add(task.getId())) {
+                task.setId(0);
+            }
+        }
+        for (Task task : tasks) {
+            assignId(task);
+        }
     }
     
     /**
-     * Adds a task to the task list.
+     * Adds a task to the task list, giving it an ID if it has none.
      *
      * @param task Task to be added.
      */
     public void addTask(Task task) {
-        tasks.add(task);
+        assignId(task);
+        if (slotCount == slots.length) {
+            slots = Arrays.copyOf(slots, slotCount * 2);
+            if (occupiedSlotTree != null) {
+                buildOccupiedSlotTree();
+            }
+        }
+        slots[slotCount] = task;
+        if (occupiedSlotTree != null) {
+            updateOccupiedSlotTree(slotCount, 1);
+        }
+        if (slotsById != null) {
+            slotsById.put(task.getId(), slotCount);
+        }
+        slotCount++;
+        addToIndexes(task);
+    }
+
+    /**
+     * Inserts a task at the specified index, giving it an ID if it has none.
+     * A task put back where it was removed from normally refills the slot it left empty,
+     * which takes O(log n) time; otherwise the slots are rebuilt in O(n).
+     *
+     * @param index Index the task will have (0-based).
+     * @param task Task to be inserted.
+     * @throws ChatterboxException If the index is beyond the end of the list.
+     */
+    public void insertTask(int index, Task task) throws ChatterboxException {
+        checkInsertion(TaskSelection.of(index), 1);
+        if (index == size()) {
+            addTask(task);
+            return;
+        }
+
+        assignId(task);
+        int slot = slotOf(index) - 1;
+        if (slot >= 0 && slots[slot] == null) {
+            slots[slot] = task;
+            emptySlotCount--;
+            updateOccupiedSlotTree(slot, 1);
+            if (slotsById != null) {
+                slotsById.put(task.getId(), slot);
+            }
+        } else {
+            ArrayList<Task> allTasks = new ArrayList<>(getAllTasks());
+            allTasks.add(index, task);
+            resetSlots(allTasks);
+        }
+        addToIndexes(task);
+    }
+
+    /**
+     * Inserts the tasks so that they end up at the selected indexes, undoing {@link #removeTasks}.
+     * Small selections are inserted one task at a time, from the first selected index on,
+     * while large selections are merged into the list in a single pass.
+     *
+     * @param selection Indexes the tasks will have, one per task.
+     * @param tasks Tasks to insert, in list order.
+     * @throws ChatterboxException If any selected index is beyond the end of the list;
+     *     no task is inserted then.
+     */
+    public void insertTasks(TaskSelection selection, List<Task> tasks) throws ChatterboxException {
+        checkInsertion(selection, tasks.size());
+        if (selection.size() <= size() / 32) {
+            insertEach(selection, tasks);
+            return;
+        }
+
+        ArrayList<Task> allTasks = new ArrayList<>(getAllTasks());
+        selection.insertInto(allTasks, tasks);
+        for (Task task : tasks) {
+            assignId(task);
+            addToIndexes(task);
+        }
+        resetSlots(allTasks);
+    }
+
+    /**
+     * Inserts the tasks one at a time with {@link #insertTask(int, Task)}, in ascending order of
+     * the selected indexes so that each index is reached once the tasks before it are in place.
+     *
+     * @param selection Indexes the tasks will have, one per task.
+     * @param tasks Tasks to insert, in list order.
+     * @throws ChatterboxException If any selected index is beyond the end of the list.
+     */
+    protected void insertEach(TaskSelection selection, List<Task> tasks) throws ChatterboxException {
+        int inserted = 0;
+        for (int range = 0; range < selection.getRangeCount(); range++) {
+            for (int i = selection.getStart(range); i <= selection.getEnd(range); i++) {
+                insertTask(i, tasks.get(inserted++));
+            }
+        }
+    }
+
+    /**
+     * Checks that the selection holds one index per inserted task and that every selected
+     * index is within the list once the tasks are inserted.
+     *
+     * @param selection Indexes the inserted tasks will have.
+     * @param taskCount Number of tasks being inserted.
+     * @throws ChatterboxException If any selected index is beyond the end of the list.
+     */
+    protected void checkInsertion(TaskSelection selection, int taskCount) throws ChatterboxException {
+        if (selection.size() != taskCount) {
+            throw new IllegalArgumentException("Expected " + selection.size() + " tasks, got " + taskCount);
+        }
+        if (selection.getFirst() < 0 || selection.getLast() >= (long) size() + taskCount) {
+            throw new ChatterboxException("The list is too short to put a task back as task number "
+                    + (selection.getLast() + 1L) + ".");
+        }
     }
     
     /**
@@ -307,10 +664,177 @@ class TaskList {
      * @throws ChatterboxException If the index is out of bounds.
      */
     public Task removeTask(int index) throws ChatterboxException {
-        if (index < 0 || index >= tasks.size()) {
-            throw new ChatterboxException("Task number " + (index + 1) + " does not exist.");
+        Task removedTask = getTask(index);
+        emptySlot(slotOf(index));
+        compactIfSparse();
+        return removedTask;
+    }
+    
+    /**
+     * Removes all selected tasks. Small selections empty one slot per task, from the last
+     * selected task backwards so that the indexes still to be removed stay valid, while
+     * large selections are removed in a single compaction pass over the list.
+     *
+     * @param selection Indexes of the tasks to remove.
+     * @return The removed tasks, in list order.
+     * @throws ChatterboxException If any selected index is out of bounds; no task is removed then.
+     */
+    public List<Task> removeTasks(TaskSelection selection) throws ChatterboxException {
+        checkSelection(selection);
+        if (selection.size() > size() / 32) {
+            ArrayList<Task> keptTasks = new ArrayList<>(getAllTasks());
+            ArrayList<Task> removedTasks = selection.removeFrom(keptTasks);
+            for (Task removedTask : removedTasks) {
+                removeFromIndexes(removedTask);
+            }
+            resetSlots(keptTasks);
+            return removedTasks;
+        }
+
+        Task[] removedTasks = new Task[(int) selection.size()];
+        int removed = removedTasks.length;
+        for (int range = selection.getRangeCount() - 1; range >= 0; range--) {
+            for (int i = selection.getEnd(range); i >= selection.getStart(range); i--) {
+                int slot = slotOf(i);
+                removedTasks[--removed] = slots[slot];
+                emptySlot(slot);
+            }
+        }
+        compactIfSparse();
+        return Arrays.asList(removedTasks);
+    }
+
+    /**
+     * Empties the given slot and removes its task from the search indexes.
+     */
+    private void emptySlot(int slot) {
+        Task removedTask = slots[slot];
+        if (slot == slotCount - 1) {
+            slotCount--;
+        } else {
+            if (occupiedSlotTree == null) {
+                buildOccupiedSlotTree();
+            }
+            emptySlotCount++;
+        }
+        slots[slot] = null;
+        if (occupiedSlotTree != null) {
+            updateOccupiedSlotTree(slot, -1);
+        }
+        if (slotsById != null) {
+            slotsById.remove(removedTask.getId());
+        }
+        removeFromIndexes(removedTask);
+    }
+
+    private void addToIndexes(Task task) {
+        if (keywordIndex != null) {
+            keywordIndex.add(task);
+        }
+        if (dateIndex != null) {
+            dateIndex.add(task);
+        }
+        if (dateOrderIndex != null) {
+            dateOrderIndex.add(task);
+        }
+    }
+
+    private void removeFromIndexes(Task removedTask) {
+        if (keywordIndex != null) {
+            keywordIndex.remove(removedTask);
+        }
+        if (dateIndex != null) {
+            dateIndex.remove(removedTask);
+        }
+        if (dateOrderIndex != null) {
+            dateOrderIndex.remove(removedTask);
+        }
+    }
+
+    /**
+     * Moves the remaining tasks together once more than half of the slots are empty,
+     * so that removals take amortised O(log n) time and the slots O(n) space.
+     */
+    private void compactIfSparse() {
+        if (emptySlotCount >= MIN_COMPACTION_SLOTS && emptySlotCount * 2 > slotCount) {
+            resetSlots(getAllTasks());
+        }
+    }
+
+    private void resetSlots(List<Task> tasks) {
+        slots = tasks.toArray(new Task[Math.max(INITIAL_CAPACITY, tasks.size())]);
+        slotCount = tasks.size();
+        emptySlotCount = 0;
+        occupiedSlotTree = null;
+        slotsById = null;
+    }
+
+    /**
+     * Returns the slot of the task at the given index, by descending the Fenwick tree
+     * to the slot before which exactly index slots are occupied.
+     */
+    private int slotOf(int index) {
+        if (occupiedSlotTree == null) {
+            return index;
+        }
+        int slot = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(slots.length); step > 0; step >>= 1) {
+            int next = slot + step;
+            if (next <= slots.length && occupiedSlotTree[next] <= remaining) {
+                slot = next;
+                remaining -= occupiedSlotTree[next];
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the index of the task in the given slot, which is the number of occupied slots before it.
+     */
+    private int indexOfSlot(int slot) {
+        if (occupiedSlotTree == null) {
+            return slot;
+        }
+        int index = 0;
+        for (int i = slot; i > 0; i -= i & -i) {
+            index += occupiedSlotTree[i];
+        }
+        return index;
+    }
+
+    private void updateOccupiedSlotTree(int slot, int delta) {
+        for (int i = slot + 1; i <= slots.length; i += i & -i) {
+            occupiedSlotTree[i] += delta;
+        }
+    }
+
+    /**
+     * Builds the Fenwick tree over all slots in O(n), for the current slot capacity.
+     */
+    private void buildOccupiedSlotTree() {
+        occupiedSlotTree = new int[slots.length + 1];
+        for (int i = 1; i <= slots.length; i++) {
+            if (i <= slotCount && slots[i - 1] != null) {
+                occupiedSlotTree[i]++;
+            }
+            int parent = i + (i & -i);
+            if (parent <= slots.length) {
+                occupiedSlotTree[parent] += occupiedSlotTree[i];
+            }
+        }
+    }
+
+    /**
+     * Checks that every selected index is within the list.
+     *
+     * @param selection Indexes to check.
+     * @throws ChatterboxException If any selected index is out of bounds.
+     */
+    protected void checkSelection(TaskSelection selection) throws ChatterboxException {
+        if (selection.getLast() >= size()) {
+            throw new ChatterboxException("Task number " + (selection.getLast() + 1L) + " does not exist.");
         }
-        return tasks.remove(index);
     }
     
     /**
@@ -321,10 +845,55 @@ class TaskList {
      * @throws ChatterboxException If the index is out of bounds.
      */
     public Task getTask(int index) throws ChatterboxException {
-        if (index < 0 || index >= tasks.size()) {
+        if (index < 0 || index >= size()) {
             throw new ChatterboxException("Task number " + (index + 1) + " does not exist.");
         }
-        return tasks.get(index);
+        return slots[slotOf(index)];
+    }
+
+    /**
+     * Returns the task with the specified ID.
+     *
+     * @param id ID of the task to retrieve.
+     * @return The task with the given ID.
+     * @throws ChatterboxException If no task in the list has the ID.
+     */
+    public Task getTaskById(int id) throws ChatterboxException {
+        return slots[slotOfId(id)];
+    }
+
+    /**
+     * Returns the current index of the task with the specified ID.
+     *
+     * @param id ID of the task to find.
+     * @return Index of the task (0-based).
+     * @throws ChatterboxException If no task in the list has the ID.
+     */
+    public int getIndexById(int id) throws ChatterboxException {
+        return indexOfSlot(slotOfId(id));
+    }
+
+    /**
+     * Returns the current indexes of the given tasks, found by their IDs.
+     *
+     * @param selectedTasks Tasks to find.
+     * @return Selection of the tasks' indexes.
+     * @throws ChatterboxException If any of the tasks is no longer in the list.
+     */
+    public TaskSelection selectByIds(List<Task> selectedTasks) throws ChatterboxException {
+        int[] indexes = new int[selectedTasks.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = getIndexById(selectedTasks.get(i).getId());
+        }
+        return TaskSelection.of(indexes);
+    }
+
+    private int slotOfId(int id) throws ChatterboxException {
+        Integer slot = getSlotsById().get(id);
+        if (slot == null) {
+            throw new ChatterboxException("Task with ID " + id + " does not exist.");
+        }
+        return slot;
     }
     
     /**
@@ -341,15 +910,74 @@ class TaskList {
         } else {
             task.markAsNotDone();
         }
+        if (dateOrderIndex != null) {
+            dateOrderIndex.update(task);
+        }
+    }
+
+    /**
+     * Marks all selected tasks as done or not done.
+     *
+     * @param selection Indexes of the tasks to mark.
+     * @param isDone True to mark as done, false to mark as not done.
+     * @throws ChatterboxException If any selected index is out of bounds; no task is marked then.
+     */
+    public void markTasks(TaskSelection selection, boolean isDone) throws ChatterboxException {
+        checkSelection(selection);
+        for (int range = 0; range < selection.getRangeCount(); range++) {
+            for (int i = selection.getStart(range); i <= selection.getEnd(range); i++) {
+                markTask(i, isDone);
+            }
+        }
     }
     
     /**
-     * Returns the list of all tasks in the task list.
+     * Returns a read-only view of all tasks in the task list, which reflects later changes.
      *
      * @return List of all tasks.
      */
-    public ArrayList<Task> getAllTasks() {
-        return tasks;
+    public List<Task> getAllTasks() {
+        return new AbstractList<Task>() {
+            @Override
+            public Task get(int index) {
+                Objects.checkIndex(index, size());
+                return slots[slotOf(index)];
+            }
+
+            @Override
+            public int size() {
+                return TaskList.this.size();
+            }
+
+            @Override
+            public Iterator<Task> iterator() {
+                return new Iterator<Task>() {
+                    private int slot = nextOccupiedSlot(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < slotCount;
+                    }
+
+                    @Override
+                    public Task next() {
+                        if (slot >= slotCount) {
+                            throw new NoSuchElementException();
+                        }
+                        Task task = slots[slot];
+                        slot = nextOccupiedSlot(slot + 1);
+                        return task;
+                    }
+                };
+            }
+        };
+    }
+
+    private int nextOccupiedSlot(int slot) {
+        while (slot < slotCount && slots[slot] == null) {
+            slot++;
+        }
+        return slot;
     }
     
     /**
@@ -358,439 +986,4684 @@ class TaskList {
      * @return Number of tasks.
      */
     public int size() {
-        return tasks.size();
+        return slotCount - emptySlotCount;
     }
-    
-    /**
-     * Returns a list of tasks that occur on the specified date.
-     *
-     * @param date Date to search for tasks.
-     * @return List of tasks occurring on the given date.
-     */
-    public ArrayList<Task> findTasksOnDate(LocalDateTime date) {
-        ArrayList<Task> result = new ArrayList<>();
-        
-        for (Task task : tasks) {
-            if (task instanceof Deadline) {
-                Deadline deadline = (Deadline) task;
-                if (deadline.getBy().toLocalDate().equals(date.toLocalDate())) {
-                    result.add(task);
-                }
-            } else if (task instanceof Event) {
-                Event event = (Event) task;
-                // Check if the event occurs on the given date
-                if (!event.getFrom().toLocalDate().isAfter(date.toLocalDate()) && 
-                    !event.getTo().toLocalDate().isBefore(date.toLocalDate())) {
-                    result.add(task);
-                }
+
+    private KeywordIndex getKeywordIndex() {
+        if (keywordIndex == null) {
+            keywordIndex = new KeywordIndex();
+            for (Task task : getAllTasks()) {
+                keywordIndex.add(task);
             }
         }
-        
-        return result;
+        return keywordIndex;
     }
-}
 
-class Ui {
+    private DateIndex getDateIndex() {
+        if (dateIndex == null) {
+            dateIndex = new DateIndex();
+            for (Task task : getAllTasks()) {
+                dateIndex.add(task);
+            }
+        }
+        return dateIndex;
+    }
 
-        /**
-         * Shows the list of tasks that match a keyword search.
-         *
-         * @param tasks List of matching tasks.
-         * @param keyword The keyword used for searching.
-         */
-        public void showMatchingTasks(ArrayList<Task> foundTasks, TaskList fullTaskList, String keyword) {
-            System.out.println(" Here are the matching tasks in your list:");
-            if (foundTasks.isEmpty()) {
-                System.out.println(" No matching tasks found.");
-            } else {
-                ArrayList<Task> allTasks = fullTaskList.getAllTasks();
-                for (Task foundTask : foundTasks) {
-                    int originalIndex = -1;
-                    for (int i = 0; i < allTasks.size(); i++) {
-                        if (allTasks.get(i) == foundTask) {
-                            originalIndex = i;
-                            break;
-                        }
-                    }
-                    if (originalIndex != -1) {
-                        System.out.println(" " + (originalIndex + 1) + "." + foundTask);
-                    } else {
-                        System.out.println(" ?." + foundTask); // fallback if not found
-                    }
-                }
+    private DateOrderIndex getDateOrderIndex() {
+        if (dateOrderIndex == null) {
+            dateOrderIndex = new DateOrderIndex();
+            for (Task task : getAllTasks()) {
+                dateOrderIndex.add(task);
             }
         }
-    private static final String LINE = "________________________________";
-    private Scanner scanner;
-    
-    public Ui() {
-        scanner = new Scanner(System.in);
+        return dateOrderIndex;
     }
-    
-    public void showWelcome() {
-        showLine();
-        System.out.println(" Hello! I'm Chatterbox");
-        System.out.println(" What can I do for you?");
-        showLine();
-    }
-    
-    public void showGoodbye() {
-        System.out.println(" Bye! Hope to see you again soon!");
-    }
-    
-    public void showLine() {
-        System.out.println(LINE);
-    }
-    
-    public String readCommand() {
-        return scanner.nextLine();
-    }
-    
-    public void showError(String message) {
-        System.out.println(" OOPS!!! " + message);
-    }
-    
-    public void showLoadingError(String message) {
-        System.err.println("Error loading tasks: " + message);
-    }
-    
-    public void showTaskAdded(Task task, int totalTasks) {
-        System.out.println(" Got it. I've added this task:");
-        System.out.println("   " + task);
-        System.out.println(" Now you have " + totalTasks + " tasks in the list.");
-    }
-    
-    public void showTaskRemoved(Task task, int totalTasks) {
-        System.out.println(" Noted. I've removed this task:");
-        System.out.println("   " + task);
-        System.out.println(" Now you have " + totalTasks + " tasks in the list.");
-    }
-    
-    public void showTaskMarked(Task task, boolean isDone) {
-        if (isDone) {
-            System.out.println(" Nice! Congrats on finishing this task!");
-        } else {
-            System.out.println(" OK, I've forgotten about it already!");
-        }
-        System.out.println("   " + task);
-    }
-    
-    public void showTaskList(ArrayList<Task> tasks) {
-        System.out.println(" Here are the tasks in your list:");
-        for (int i = 0; i < tasks.size(); i++) {
-            System.out.println(" " + (i + 1) + "." + tasks.get(i));
+
+    private HashMap<Integer, Integer> getSlotsById() {
+        if (slotsById == null) {
+            slotsById = new HashMap<>();
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (slots[slot] != null) {
+                    slotsById.put(slots[slot].getId(), slot);
+                }
+            }
         }
+        return slotsById;
     }
-    
-    public void showTasksOnDate(ArrayList<Task> tasks, String date) {
-        System.out.println(" Tasks on " + date + ":");
-        if (tasks.isEmpty()) {
-            System.out.println(" No tasks found for this date.");
-        } else {
-            for (int i = 0; i < tasks.size(); i++) {
-                System.out.println(" " + (i + 1) + "." + tasks.get(i));
-            }
+
+    /**
+     * Pairs tasks found through an index with their current indexes, in list order.
+     * Each task's slot is looked up by its ID, and its index counted from the slot.
+     */
+    private ArrayList<IndexedTask> inListOrder(ArrayList<Task> found) {
+        HashMap<Integer, Integer> slotsById = getSlotsById();
+        ArrayList<IndexedTask> result = new ArrayList<>(found.size());
+        for (Task task : found) {
+            result.add(new IndexedTask(indexOfSlot(slotsById.get(task.getId())), task));
         }
+        result.sort(Comparator.comparingInt(IndexedTask::getIndex));
+        return result;
     }
     
-    public void close() {
-        scanner.close();
+    /**
+     * Returns a list of tasks that occur on the specified date.
+     *
+     * @param date Date to search for tasks.
+     * @return List of tasks occurring on the given date with their indexes, in list order.
+     */
+    public ArrayList<IndexedTask> findTasksOnDate(LocalDateTime date) {
+        return findTasksBetweenDates(date, date);
     }
-}
 
-// ==================== Storage ====================
-/**
- * Handles loading and saving of tasks to and from a file for the Chatterbox application.
- * Provides methods to persist and retrieve the task list.
- */
-class Storage {
-    private String filePath;
-    private static final DateTimeFormatter FILE_DATE_FORMATTER = 
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
-    
     /**
-     * Constructs a Storage object with the specified file path.
+     * Returns a list of tasks that occur on any day between the specified dates, inclusive.
+     * Deadlines are due within the range, and events overlap it.
      *
-     * @param filePath Path to the data file for storing tasks.
+     * @param start First date of the range.
+     * @param end Last date of the range.
+     * @return List of tasks occurring within the given range with their indexes, in list order.
      */
-    public Storage(String filePath) {
-        this.filePath = filePath;
+    public ArrayList<IndexedTask> findTasksBetweenDates(LocalDateTime start, LocalDateTime end) {
+        return inListOrder(getDateIndex().findBetween(start.toLocalDate(), end.toLocalDate()));
     }
-    
+
     /**
-     * Loads tasks from the data file.
-     * Creates the file and its parent directory if they do not exist.
+     * Returns the tasks shown by a list view, with their indexes.
+     * Views in list order take one pass over the list; views sorted by date are read
+     * from the date order kept since the first of them, so they are not sorted again.
      *
-     * @return List of tasks loaded from the file.
-     * @throws ChatterboxException If an error occurs while loading tasks.
+     * @param view View to show.
+     * @return List of the shown tasks with their indexes, in view order.
      */
-    public ArrayList<Task> load() throws ChatterboxException {
-        ArrayList<Task> tasks = new ArrayList<>();
-        
-        try {
-            Path dataFilePath = Paths.get(filePath);
-            Path dataDirPath = dataFilePath.getParent();
-            
-            // Create data directory if it doesn't exist
-            if (dataDirPath != null && !Files.exists(dataDirPath)) {
-                Files.createDirectories(dataDirPath);
-            }
-            
-            // Create data file if it doesn't exist
-            if (!Files.exists(dataFilePath)) {
-                Files.createFile(dataFilePath);
-                return tasks; // Empty list for new file
-            }
-            
-            // Read all lines from file
-            java.util.List<String> lines = Files.readAllLines(dataFilePath);
-            
-            for (String line : lines) {
-                try {
-                    Task task = parseTaskFromFile(line);
-                    if (task != null) {
-                        tasks.add(task);
-                    }
-                } catch (IllegalArgumentException e) {
-                    System.err.println("Warning: Skipping corrupted line: " + line);
-                }
-            }
-            
-        } catch (IOException e) {
-            throw new ChatterboxException("Error loading tasks: " + e.getMessage());
+    public ArrayList<IndexedTask> findTasks(TaskView view) {
+        if (!view.isSortedByDate()) {
+            return view.apply(getAllTasks());
         }
-        
-        return tasks;
+        return inFoundOrder(getDateOrderIndex().find(view));
     }
-    
-    private Task parseTaskFromFile(String line) {
-        if (line == null || line.trim().isEmpty()) {
-            return null;
-        }
-        
-        String[] parts = line.split(" \\| ");
-        
-        // Minimum 3 parts: type | status | description
-        if (parts.length < 3) {
-            throw new IllegalArgumentException("Invalid format: " + line);
-        }
-        
-        String typeStr = parts[0].trim();
-        String statusStr = parts[1].trim();
-        String description = parts[2].trim();
-        
-        boolean isDone = statusStr.equals("1");
-        
-        try {
-            Task.TaskType type = Task.TaskType.fromString(typeStr);
-            
-            switch (type) {
-            case TODO:
-                return new ToDo(description, isDone);
-                
-            case DEADLINE:
-                if (parts.length < 4) {
-                    throw new IllegalArgumentException("Deadline missing 'by' field: " + line);
-                }
-                String byStr = parts[3].trim();
-                LocalDateTime by = LocalDateTime.parse(byStr, FILE_DATE_FORMATTER);
-                return new Deadline(description, by, isDone);
-                
-            case EVENT:
-                if (parts.length < 5) {
-                    throw new IllegalArgumentException("Event missing 'from' or 'to' field: " + line);
-                }
-                String fromStr = parts[3].trim();
-                String toStr = parts[4].trim();
-                LocalDateTime from = LocalDateTime.parse(fromStr, FILE_DATE_FORMATTER);
-                LocalDateTime to = LocalDateTime.parse(toStr, FILE_DATE_FORMATTER);
-                return new Event(description, from, to, isDone);
-                
-            default:
-                throw new IllegalArgumentException("Unknown task type: " + typeStr);
+
+    /**
+     * Returns the pending tasks of the given types that fall due from start up to but not
+     * including end, with their indexes, in date order. Deadlines fall due at their due date
+     * and events at their start. Read from the date order, so only the tasks in range are visited.
+     *
+     * @param start First date and time of the range.
+     * @param end Date and time just after the range.
+     * @param types Types of the tasks to find.
+     * @return List of the tasks found with their indexes, sorted by date.
+     */
+    public ArrayList<IndexedTask> findPendingTasksBetween(LocalDateTime start, LocalDateTime end,
+            Task.TaskType... types) {
+        return inFoundOrder(getDateOrderIndex().findPendingBetween(start, end, types));
+    }
+
+    /**
+     * Finds the same tasks as findPendingTasksBetween by filtering the view of all pending tasks
+     * sorted by date, for lists that keep no date order of their own.
+     */
+    protected ArrayList<IndexedTask> filterPendingTasksBetween(LocalDateTime start, LocalDateTime end,
+            Task.TaskType... types) {
+        List<Task.TaskType> typeList = Arrays.asList(types);
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        for (IndexedTask found : findTasks(new TaskView(true, TaskView.Status.PENDING, null))) {
+            LocalDateTime dateTime = found.getTask().getDateTime();
+            if (typeList.contains(found.getTask().type) && dateTime != null
+                    && !dateTime.isBefore(start) && dateTime.isBefore(end)) {
+                result.add(found);
             }
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Invalid date format in: " + line, e);
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Failed to parse task: " + line, e);
         }
+        return result;
     }
-    
+
     /**
-     * Saves the given list of tasks to the data file.
-     * Creates the file and its parent directory if they do not exist.
-     *
-     * @param tasks List of tasks to save.
-     * @throws ChatterboxException If an error occurs while saving tasks.
+     * Pairs tasks found through an index with their current indexes, keeping the order they were found in.
      */
-    public void save(ArrayList<Task> tasks) throws ChatterboxException {
-        try {
-            Path dataFilePath = Paths.get(filePath);
-            Path dataDirPath = dataFilePath.getParent();
-            
-            // Ensure data directory exists
-            if (dataDirPath != null && !Files.exists(dataDirPath)) {
-                Files.createDirectories(dataDirPath);
-            }
-            
-            FileWriter writer = new FileWriter(filePath);
-            
-            for (Task task : tasks) {
-                writer.write(task.toFileFormat() + System.lineSeparator());
-            }
-            
-            writer.close();
-            
-        } catch (IOException e) {
-            throw new ChatterboxException("Error saving tasks: " + e.getMessage());
+    private ArrayList<IndexedTask> inFoundOrder(ArrayList<Task> found) {
+        HashMap<Integer, Integer> slotsById = getSlotsById();
+        ArrayList<IndexedTask> result = new ArrayList<>(found.size());
+        for (Task task : found) {
+            result.add(new IndexedTask(indexOfSlot(slotsById.get(task.getId())), task));
         }
+        return result;
     }
 }
 
-// ==================== Command Classes ====================
 /**
- * Represents an executable command in the Chatterbox application.
- * Serves as the base class for all user commands.
+ * Represents a task found in a TaskList, together with its index in the list.
  */
-abstract class Command {
+class IndexedTask {
+    private final int index;
+    private final Task task;
+
+    public IndexedTask(int index, Task task) {
+        this.index = index;
+        this.task = task;
+    }
+
     /**
-     * Executes the command using the provided task list, UI, and storage.
+     * Returns the index of the task in the list (0-based).
      *
-     * @param tasks The task list to operate on.
-     * @param ui The user interface for displaying output.
-     * @param storage The storage handler for persisting changes.
-     * @throws ChatterboxException If an error occurs during execution.
+     * @return Index of the task.
      */
-    public abstract void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException;
+    public int getIndex() {
+        return index;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+}
+
+/**
+ * Describes which tasks a list view shows and in which order: all tasks or only done or
+ * pending ones, all types or only one, in list order or sorted by date.
+ */
+class TaskView {
+    enum Status {
+        ALL,
+        DONE,
+        PENDING
+    }
+
     /**
-     * Returns whether this command will cause the application to exit.
+     * Orders tasks by their date, with tasks without a date last, and then by ID,
+     * i.e. in the order in which they were added.
+     */
+    static final Comparator<Task> DATE_ORDER = Comparator
+            .comparing(Task::getDateTime, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparingInt(Task::getId);
+
+    public static final TaskView ALL = new TaskView(false, Status.ALL, null);
+
+    private final boolean isSortedByDate;
+    private final Status status;
+    private final Task.TaskType type;
+
+    /**
+     * Constructs a TaskView.
      *
-     * @return True if the command signals exit, false otherwise.
+     * @param isSortedByDate True to sort the tasks by date, false to keep them in list order.
+     * @param status Completion status of the tasks to show.
+     * @param type Type of the tasks to show, or null to show all types.
      */
-    public boolean isExit() {
-        return false;
+    public TaskView(boolean isSortedByDate, Status status, Task.TaskType type) {
+        this.isSortedByDate = isSortedByDate;
+        this.status = status;
+        this.type = type;
     }
-}
 
-class ExitCommand extends Command {
-    @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) {
-        ui.showGoodbye();
-    }
-    
-    @Override
-    public boolean isExit() {
-        return true;
+    public boolean isSortedByDate() {
+        return isSortedByDate;
     }
-}
 
-class ListCommand extends Command {
-    @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) {
-        ui.showTaskList(tasks.getAllTasks());
+    /**
+     * Returns whether this view shows every task in list order, like a plain "list".
+     */
+    public boolean isAll() {
+        return !isSortedByDate && status == Status.ALL && type == null;
     }
-}
 
-class MarkCommand extends Command {
-    private int taskIndex;
-    private boolean isDone;
-    
-    public MarkCommand(int taskIndex, boolean isDone) {
-        this.taskIndex = taskIndex;
-        this.isDone = isDone;
+    /**
+     * Returns whether the view shows tasks of the given type and completion status.
+     */
+    public boolean matches(Task.TaskType taskType, boolean isDone) {
+        return (type == null || type == taskType)
+                && (status == Status.ALL || (status == Status.DONE) == isDone);
     }
-    
-    @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
-        tasks.markTask(taskIndex, isDone);
-        Task task = tasks.getTask(taskIndex);
-        ui.showTaskMarked(task, isDone);
-        storage.save(tasks.getAllTasks());
+
+    public boolean matches(Task task) {
+        return matches(task.type, task.isDone());
     }
-}
 
-class DeleteCommand extends Command {
-    private int taskIndex;
-    
-    public DeleteCommand(int taskIndex) {
-        this.taskIndex = taskIndex;
+    /**
+     * Picks the shown tasks out of the list and sorts them if needed, on every call.
+     * Used by lists that keep no date order of their own.
+     *
+     * @param tasks All tasks of the list, in list order.
+     * @return The shown tasks with their indexes, in view order.
+     */
+    public ArrayList<IndexedTask> apply(List<Task> tasks) {
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        int index = 0;
+        for (Task task : tasks) {
+            if (matches(task)) {
+                result.add(new IndexedTask(index, task));
+            }
+            index++;
+        }
+        if (isSortedByDate) {
+            result.sort(Comparator.comparing(IndexedTask::getTask, DATE_ORDER));
+        }
+        return result;
     }
-    
-    @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
-        Task removedTask = tasks.removeTask(taskIndex);
-        ui.showTaskRemoved(removedTask, tasks.size());
-        storage.save(tasks.getAllTasks());
+
+    /**
+     * Describes the shown tasks, e.g. "pending deadlines in your list, sorted by date".
+     */
+    public String describe() {
+        String statusName = status == Status.DONE ? "done " : status == Status.PENDING ? "pending " : "";
+        String typeName = type == Task.TaskType.TODO ? "todos"
+                : type == Task.TaskType.DEADLINE ? "deadlines"
+                : type == Task.TaskType.EVENT ? "events" : "tasks";
+        return statusName + typeName + " in your list" + (isSortedByDate ? ", sorted by date" : "");
     }
 }
 
-class AddTodoCommand extends Command {
-    private String description;
-    
-    public AddTodoCommand(String description) {
-        this.description = description;
+/**
+ * Represents a set of task indexes given as a list of numbers and ranges, such as "3,7,10-250".
+ * Ranges are kept sorted and merged rather than expanded, so a selection of a million
+ * tasks takes as little space as a selection of one.
+ */
+class TaskSelection {
+    private final int[] starts;
+    private final int[] ends;
+
+    private TaskSelection(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
     }
-    
-    @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
-        Task newTask = new ToDo(description);
-        tasks.addTask(newTask);
-        ui.showTaskAdded(newTask, tasks.size());
-        storage.save(tasks.getAllTasks());
+
+    /**
+     * Returns a selection of a single task.
+     *
+     * @param index Index of the task (0-based).
+     * @return The selection.
+     */
+    public static TaskSelection of(int index) {
+        return new TaskSelection(new int[] {index}, new int[] {index});
     }
-}
 
-class AddDeadlineCommand extends Command {
-    private String description;
+    /**
+     * Returns a selection of the given tasks, which may be in any order.
+     *
+     * @param indexes Indexes of the tasks (0-based).
+     * @return The selection.
+     */
+    public static TaskSelection of(int[] indexes) {
+        int[] sorted = indexes.clone();
+        Arrays.sort(sorted);
+        int[] starts = new int[sorted.length];
+        int[] ends = new int[sorted.length];
+        int rangeCount = 0;
+        for (int index : sorted) {
+            if (rangeCount > 0 && index <= ends[rangeCount - 1] + 1L) {
+                ends[rangeCount - 1] = Math.max(ends[rangeCount - 1], index);
+            } else {
+                starts[rangeCount] = index;
+                ends[rangeCount] = index;
+                rangeCount++;
+            }
+        }
+        return new TaskSelection(Arrays.copyOf(starts, rangeCount), Arrays.copyOf(ends, rangeCount));
+    }
+
+    /**
+     * Parses a comma-separated list of numbers and inclusive ranges.
+     *
+     * @param text The selection.
+     * @param base Number of the first task, e.g. 1 for task numbers shown to the user
+     *     or 0 for list indexes.
+     * @return The selection as 0-based indexes, or null if the text is not a valid selection.
+     */
+    public static TaskSelection parse(String text, int base) {
+        return parse(text, 0, text.length(), base);
+    }
+
+    /**
+     * Parses a comma-separated list of numbers and inclusive ranges between the given indexes.
+     *
+     * @param text Text containing the selection.
+     * @param start Index of the first character of the selection.
+     * @param end Index after the last character of the selection.
+     * @param base Number of the first task, e.g. 1 for task numbers shown to the user
+     *     or 0 for list indexes.
+     * @return The selection as 0-based indexes, or null if the text is not a valid selection.
+     */
+    public static TaskSelection parse(String text, int start, int end, int base) {
+        ArrayList<long[]> ranges = new ArrayList<>();
+        int itemStart = start;
+        while (itemStart <= end) {
+            int itemEnd = text.indexOf(',', itemStart);
+            if (itemEnd < 0 || itemEnd > end) {
+                itemEnd = end;
+            }
+            int dash = text.indexOf('-', itemStart);
+            int firstEnd = dash >= 0 && dash < itemEnd ? dash : itemEnd;
+            long first = parseNumber(text, itemStart, firstEnd);
+            long last = firstEnd == itemEnd ? first : parseNumber(text, firstEnd + 1, itemEnd);
+            if (first < base || last < first || last - base > Integer.MAX_VALUE) {
+                return null;
+            }
+            ranges.add(new long[] {first - base, last - base});
+            itemStart = itemEnd + 1;
+        }
+
+        ranges.sort(Comparator.comparingLong((long[] range) -> range[0]));
+        int[] starts = new int[ranges.size()];
+        int[] ends = new int[ranges.size()];
+        int rangeCount = 0;
+        for (long[] range : ranges) {
+            if (rangeCount > 0 && range[0] <= ends[rangeCount - 1] + 1L) {
+                ends[rangeCount - 1] = (int) Math.max(ends[rangeCount - 1], range[1]);
+            } else {
+                starts[rangeCount] = (int) range[0];
+                ends[rangeCount] = (int) range[1];
+                rangeCount++;
+            }
+        }
+        return new TaskSelection(Arrays.copyOf(starts, rangeCount), Arrays.copyOf(ends, rangeCount));
+    }
+
+    /**
+     * Returns whether the text between the given indexes selects more than a single number,
+     * i.e. contains a list or a range.
+     */
+    public static boolean isMultiple(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ',' || (c == '-' && i > start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long parseNumber(String text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end || end - start > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    public int getRangeCount() {
+        return starts.length;
+    }
+
+    /**
+     * Returns the first index of the given range (0-based, inclusive).
+     */
+    public int getStart(int range) {
+        return starts[range];
+    }
+
+    /**
+     * Returns the last index of the given range (0-based, inclusive).
+     */
+    public int getEnd(int range) {
+        return ends[range];
+    }
+
+    public int getFirst() {
+        return starts[0];
+    }
+
+    public int getLast() {
+        return ends[ends.length - 1];
+    }
+
+    /**
+     * Returns the number of selected indexes.
+     */
+    public long size() {
+        long size = 0;
+        for (int i = 0; i < starts.length; i++) {
+            size += ends[i] - (long) starts[i] + 1;
+        }
+        return size;
+    }
+
+    /**
+     * Removes the selected elements from the list in a single pass, moving each kept element at most once.
+     * All selected indexes must be within the list.
+     *
+     * @param list List to remove the elements from.
+     * @return The removed elements, in list order.
+     */
+    public <T> ArrayList<T> removeFrom(ArrayList<T> list) {
+        ArrayList<T> removed = new ArrayList<>((int) size());
+        int writeIndex = starts[0];
+        for (int range = 0; range < starts.length; range++) {
+            removed.addAll(list.subList(starts[range], ends[range] + 1));
+            int keptEnd = range + 1 < starts.length ? starts[range + 1] : list.size();
+            for (int i = ends[range] + 1; i < keptEnd; i++) {
+                list.set(writeIndex++, list.get(i));
+            }
+        }
+        list.subList(writeIndex, list.size()).clear();
+        return removed;
+    }
+
+    /**
+     * Inserts the elements into the list so that they end up at the selected indexes, in order,
+     * undoing {@link #removeFrom(ArrayList)}. The selection must hold one index per element,
+     * all within the list once the elements are inserted.
+     *
+     * @param list List to insert the elements into.
+     * @param elements Elements to insert, in list order.
+     */
+    public <T> void insertInto(ArrayList<T> list, List<T> elements) {
+        ArrayList<T> merged = new ArrayList<>(list.size() + elements.size());
+        int listIndex = 0;
+        int elementIndex = 0;
+        for (int range = 0; range < starts.length; range++) {
+            int kept = starts[range] - merged.size();
+            merged.addAll(list.subList(listIndex, listIndex + kept));
+            listIndex += kept;
+            int inserted = ends[range] - starts[range] + 1;
+            merged.addAll(elements.subList(elementIndex, elementIndex + inserted));
+            elementIndex += inserted;
+        }
+        merged.addAll(list.subList(listIndex, list.size()));
+        list.clear();
+        list.addAll(merged);
+    }
+
+    /**
+     * Returns the selection as a comma-separated list of numbers and ranges.
+     *
+     * @param base Number of the first task, e.g. 1 for task numbers shown to the user
+     *     or 0 for list indexes.
+     * @return The formatted selection.
+     */
+    public String format(int base) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append((long) starts[i] + base);
+            if (ends[i] != starts[i]) {
+                text.append('-').append((long) ends[i] + base);
+            }
+        }
+        return text.toString();
+    }
+}
+
+/**
+ * Inverted index from character trigrams of lower-cased task descriptions to tasks.
+ * Built lazily by TaskList on the first keyword search and kept up to date on add and remove.
+ */
+class KeywordIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final HashMap<String, HashSet<Task>> postings = new HashMap<>();
+    private final IdentityHashMap<Task, String> lowerDescriptions = new IdentityHashMap<>();
+
+    /**
+     * Returns whether the given lower-cased keyword is long enough to be searched in the index.
+     *
+     * @param lowerKeyword The lower-cased keyword.
+     * @return True if the keyword has at least one trigram, false otherwise.
+     */
+    public static boolean canSearch(String lowerKeyword) {
+        return lowerKeyword.length() >= GRAM_LENGTH;
+    }
+
+    /**
+     * Adds a task to the index.
+     *
+     * @param task Task to be indexed.
+     */
+    public void add(Task task) {
+        String lowerDescription = task.getDescription().toLowerCase();
+        lowerDescriptions.put(task, lowerDescription);
+        for (int i = 0; i + GRAM_LENGTH <= lowerDescription.length(); i++) {
+            postings.computeIfAbsent(lowerDescription.substring(i, i + GRAM_LENGTH), gram -> new HashSet<>())
+                    .add(task);
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task Task to be removed.
+     */
+    public void remove(Task task) {
+        String lowerDescription = lowerDescriptions.remove(task);
+        if (lowerDescription == null) {
+            return;
+        }
+        for (int i = 0; i + GRAM_LENGTH <= lowerDescription.length(); i++) {
+            String gram = lowerDescription.substring(i, i + GRAM_LENGTH);
+            HashSet<Task> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(task);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds indexed tasks whose lower-cased description contains the given lower-cased keyword.
+     * Candidates are taken from the smallest posting among the keyword's trigrams
+     * and then checked against the full keyword.
+     *
+     * @param lowerKeyword The lower-cased keyword, at least three characters long.
+     * @return List of matching tasks, in no particular order.
+     */
+    public ArrayList<Task> find(String lowerKeyword) {
+        HashSet<Task> candidates = null;
+        for (int i = 0; i + GRAM_LENGTH <= lowerKeyword.length(); i++) {
+            HashSet<Task> posting = postings.get(lowerKeyword.substring(i, i + GRAM_LENGTH));
+            if (posting == null) {
+                return new ArrayList<>();
+            }
+            if (candidates == null || posting.size() < candidates.size()) {
+                candidates = posting;
+            }
+        }
+
+        ArrayList<Task> result = new ArrayList<>();
+        for (Task candidate : candidates) {
+            if (lowerDescriptions.get(candidate).contains(lowerKeyword)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+}
+
+/**
+ * Index of task dates, kept by TaskList to answer date and date range searches in
+ * O(log n + k). Deadlines are kept in a sorted map by due date, and events in an
+ * interval tree (a treap ordered by start date, augmented with the latest end date
+ * in each subtree).
+ */
+class DateIndex {
+    private final TreeMap<LocalDate, HashSet<Task>> deadlinesByDate = new TreeMap<>();
+    private final IdentityHashMap<Task, IntervalNode> eventNodes = new IdentityHashMap<>();
+    private final Random random = new Random();
+    private IntervalNode eventRoot;
+    private long nextNodeId;
+
+    private static class IntervalNode {
+        private final long start;
+        private final long end;
+        private final long id;
+        private final int priority;
+        private final Task task;
+        private long maxEnd;
+        private IntervalNode left;
+        private IntervalNode right;
+
+        IntervalNode(long start, long end, long id, int priority, Task task) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.priority = priority;
+            this.task = task;
+            this.maxEnd = end;
+        }
+    }
+
+    /**
+     * Adds a task to the index. Tasks without dates are ignored.
+     *
+     * @param task Task to be indexed.
+     */
+    public void add(Task task) {
+        if (task instanceof Deadline) {
+            LocalDate date = ((Deadline) task).getBy().toLocalDate();
+            deadlinesByDate.computeIfAbsent(date, key -> new HashSet<>()).add(task);
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            IntervalNode node = new IntervalNode(event.getFrom().toLocalDate().toEpochDay(),
+                    event.getTo().toLocalDate().toEpochDay(), nextNodeId++, random.nextInt(), task);
+            eventNodes.put(task, node);
+            eventRoot = insert(eventRoot, node);
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task Task to be removed.
+     */
+    public void remove(Task task) {
+        if (task instanceof Deadline) {
+            LocalDate date = ((Deadline) task).getBy().toLocalDate();
+            HashSet<Task> deadlines = deadlinesByDate.get(date);
+            if (deadlines != null) {
+                deadlines.remove(task);
+                if (deadlines.isEmpty()) {
+                    deadlinesByDate.remove(date);
+                }
+            }
+        } else if (task instanceof Event) {
+            IntervalNode node = eventNodes.remove(task);
+            if (node != null) {
+                eventRoot = delete(eventRoot, node);
+            }
+        }
+    }
+
+    /**
+     * Finds deadlines due between the given dates and events overlapping them, inclusive.
+     *
+     * @param start First date of the range.
+     * @param end Last date of the range.
+     * @return List of matching tasks, in no particular order.
+     */
+    public ArrayList<Task> findBetween(LocalDate start, LocalDate end) {
+        ArrayList<Task> result = new ArrayList<>();
+        for (HashSet<Task> deadlines : deadlinesByDate.subMap(start, true, end, true).values()) {
+            result.addAll(deadlines);
+        }
+        collectOverlapping(eventRoot, start.toEpochDay(), end.toEpochDay(), result);
+        return result;
+    }
+
+    private void collectOverlapping(IntervalNode node, long start, long end, ArrayList<Task> result) {
+        if (node == null || node.maxEnd < start) {
+            return;
+        }
+        collectOverlapping(node.left, start, end, result);
+        if (node.start <= end) {
+            if (node.end >= start) {
+                result.add(node.task);
+            }
+            collectOverlapping(node.right, start, end, result);
+        }
+    }
+
+    private static int compare(IntervalNode a, IntervalNode b) {
+        int byStart = Long.compare(a.start, b.start);
+        return byStart != 0 ? byStart : Long.compare(a.id, b.id);
+    }
+
+    private static IntervalNode insert(IntervalNode root, IntervalNode node) {
+        if (root == null) {
+            return node;
+        }
+        if (compare(node, root) < 0) {
+            root.left = insert(root.left, node);
+            if (root.left.priority > root.priority) {
+                root = rotateRight(root);
+            }
+        } else {
+            root.right = insert(root.right, node);
+            if (root.right.priority > root.priority) {
+                root = rotateLeft(root);
+            }
+        }
+        update(root);
+        return root;
+    }
+
+    private static IntervalNode delete(IntervalNode root, IntervalNode node) {
+        if (root == null) {
+            return null;
+        }
+        if (root == node) {
+            return merge(root.left, root.right);
+        }
+        if (compare(node, root) < 0) {
+            root.left = delete(root.left, node);
+        } else {
+            root.right = delete(root.right, node);
+        }
+        update(root);
+        return root;
+    }
+
+    private static IntervalNode merge(IntervalNode left, IntervalNode right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static IntervalNode rotateRight(IntervalNode node) {
+        IntervalNode pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static IntervalNode rotateLeft(IntervalNode node) {
+        IntervalNode pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(IntervalNode node) {
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+}
+
+/**
+ * The tasks of a TaskList kept in date order, for list views sorted by date.
+ * Tasks are grouped by type and completion status, each group in a tree set ordered by
+ * date and then ID, so a view only walks the groups it shows and merges them in order.
+ * Built lazily by TaskList on the first sorted view and kept up to date on add, mark and
+ * remove, so views are never sorted again.
+ */
+class DateOrderIndex {
+    private final ArrayList<TreeSet<Task>> groups = new ArrayList<>();
+
+    public DateOrderIndex() {
+        for (int i = 0; i < Task.TaskType.values().length * 2; i++) {
+            groups.add(new TreeSet<>(TaskView.DATE_ORDER));
+        }
+    }
+
+    private TreeSet<Task> groupOf(Task.TaskType type, boolean isDone) {
+        return groups.get(type.ordinal() * 2 + (isDone ? 1 : 0));
+    }
+
+    /**
+     * Adds a task to the group of its type and current completion status.
+     *
+     * @param task Task to be indexed.
+     */
+    public void add(Task task) {
+        groupOf(task.type, task.isDone()).add(task);
+    }
+
+    /**
+     * Removes a task from the index, whichever completion status it was filed under.
+     *
+     * @param task Task to be removed.
+     */
+    public void remove(Task task) {
+        groupOf(task.type, false).remove(task);
+        groupOf(task.type, true).remove(task);
+    }
+
+    /**
+     * Moves a task to the group of its new completion status after it has been marked.
+     *
+     * @param task Task that was marked.
+     */
+    public void update(Task task) {
+        remove(task);
+        add(task);
+    }
+
+    /**
+     * Returns the tasks shown by the view, in date order, by merging the groups it shows.
+     *
+     * @param view View to find the tasks of.
+     * @return The shown tasks, sorted by date.
+     */
+    public ArrayList<Task> find(TaskView view) {
+        ArrayList<Iterator<Task>> iterators = new ArrayList<>();
+        for (Task.TaskType type : Task.TaskType.values()) {
+            for (boolean isDone : new boolean[] {false, true}) {
+                if (view.matches(type, isDone)) {
+                    iterators.add(groupOf(type, isDone).iterator());
+                }
+            }
+        }
+        return merge(iterators);
+    }
+
+    /**
+     * Returns the pending tasks of the given types dated from start up to but not including end,
+     * in date order. Only the tasks within the range are visited.
+     *
+     * @param start First date and time of the range.
+     * @param end Date and time just after the range.
+     * @param types Types of the tasks to find.
+     * @return The tasks found, sorted by date.
+     */
+    public ArrayList<Task> findPendingBetween(LocalDateTime start, LocalDateTime end, Task.TaskType... types) {
+        ArrayList<Iterator<Task>> iterators = new ArrayList<>();
+        if (start.isBefore(end)) {
+            for (Task.TaskType type : types) {
+                iterators.add(groupOf(type, false).subSet(probe(start), true, probe(end), false).iterator());
+            }
+        }
+        return merge(iterators);
+    }
+
+    /**
+     * Returns a task that sorts just before every task dated at the given time, since tasks
+     * in a TaskList are given IDs from 1.
+     */
+    private static Task probe(LocalDateTime dateTime) {
+        return new Deadline("", dateTime);
+    }
+
+    private static ArrayList<Task> merge(ArrayList<Iterator<Task>> iterators) {
+        ArrayList<Task> result = new ArrayList<>();
+        Task[] heads = new Task[iterators.size()];
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = iterators.get(i).hasNext() ? iterators.get(i).next() : null;
+        }
+        while (true) {
+            int next = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (next < 0 || TaskView.DATE_ORDER.compare(heads[i], heads[next]) < 0)) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                return result;
+            }
+            result.add(heads[next]);
+            heads[next] = iterators.get(next).hasNext() ? iterators.get(next).next() : null;
+        }
+    }
+}
+
+/**
+ * A TaskList backed by memory-mapped files rather than Task objects on the heap.
+ * Tasks are kept as fixed-width records in "&lt;path&gt;.records" and their descriptions
+ * in "&lt;path&gt;.strings". Task objects are only created when a task is retrieved or
+ * rendered, marking a task flips its done byte in place, and searches scan the mapped
+ * records directly. Changes are written straight to the mapped files, so this list
+ * persists itself without a Storage. Descriptions of removed tasks are not reclaimed,
+ * and each file is limited to 2 GB.
+ */
+class MappedTaskList extends TaskList {
+    private static final byte[] MAGIC = {'C', 'B', 'X', 'M'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int VERSION_OFFSET = 4;
+    private static final int COUNT_OFFSET = 8;
+    private static final int STRINGS_END_OFFSET = 16;
+    private static final int NEXT_ID_OFFSET = 24;
+    private static final int RECORD_SIZE = 32;
+    private static final int TYPE_OFFSET = 0;
+    private static final int DONE_OFFSET = 1;
+    private static final int DESCRIPTION_LENGTH_OFFSET = 4;
+    private static final int DESCRIPTION_OFFSET = 8;
+    private static final int ID_OFFSET = 12;
+    private static final int FIRST_DATE_OFFSET = 16;
+    private static final int SECOND_DATE_OFFSET = 24;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_STRINGS_CAPACITY = 64 * 1024;
+    private static final int MOVE_CHUNK_SIZE = 64 * 1024;
+
+    private FileChannel recordChannel;
+    private FileChannel stringChannel;
+    private MappedByteBuffer records;
+    private MappedByteBuffer strings;
+    private int count;
+    private int stringsEnd;
+    private int nextId = 1;
+
+    /**
+     * Opens the task store at the given path, creating it if it does not exist.
+     *
+     * @param path Base path of the record and description files.
+     * @throws ChatterboxException If the files cannot be opened or are not a task store.
+     */
+    public MappedTaskList(String path) throws ChatterboxException {
+        try {
+            Path recordPath = Paths.get(path + ".records");
+            Path dirPath = recordPath.getParent();
+            if (dirPath != null && !Files.exists(dirPath)) {
+                Files.createDirectories(dirPath);
+            }
+            recordChannel = FileChannel.open(recordPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            stringChannel = FileChannel.open(Paths.get(path + ".strings"), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            boolean isNew = recordChannel.size() == 0;
+            records = recordChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(recordChannel.size(), HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE));
+            if (isNew) {
+                records.put(0, MAGIC);
+                records.putInt(VERSION_OFFSET, VERSION);
+                writeHeader();
+            } else {
+                byte[] magic = new byte[MAGIC.length];
+                records.get(0, magic);
+                if (!Arrays.equals(magic, MAGIC) || records.getInt(VERSION_OFFSET) != VERSION) {
+                    throw new ChatterboxException("Not a Chatterbox task store: " + path);
+                }
+                count = records.getInt(COUNT_OFFSET);
+                stringsEnd = (int) records.getLong(STRINGS_END_OFFSET);
+                // Stores written before tasks had IDs hold 0 here, and their tasks have no IDs
+                nextId = Math.max(1, records.getInt(NEXT_ID_OFFSET));
+            }
+            strings = stringChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(stringChannel.size(), Math.max(stringsEnd, INITIAL_STRINGS_CAPACITY)));
+        } catch (IOException e) {
+            throw new ChatterboxException("Error opening task store: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void addTask(Task task) {
+        writeRecord(count, task);
+    }
+
+    @Override
+    public void insertTask(int index, Task task) throws ChatterboxException {
+        checkInsertion(TaskSelection.of(index), 1);
+        writeRecord(index, task);
+    }
+
+    /**
+     * Inserts the tasks one at a time, shifting the records after each of them.
+     */
+    @Override
+    public void insertTasks(TaskSelection selection, List<Task> tasks) throws ChatterboxException {
+        checkInsertion(selection, tasks.size());
+        insertEach(selection, tasks);
+    }
+
+    /**
+     * Writes the task's description to the end of the strings file and its record at the given
+     * index, moving the records from that index on up by one.
+     */
+    private void writeRecord(int index, Task task) {
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(description.length);
+        strings.put(stringsEnd, description);
+
+        if (task.getId() == 0) {
+            task.setId(nextId++);
+        } else {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+
+        int offset = recordOffset(index);
+        moveRecords(index, index + 1, count - index);
+        records.putInt(offset + ID_OFFSET, task.getId());
+        records.put(offset + TYPE_OFFSET, (byte) task.type.getIcon().charAt(0));
+        records.put(offset + DONE_OFFSET, (byte) (task.isDone() ? 1 : 0));
+        records.putInt(offset + DESCRIPTION_LENGTH_OFFSET, description.length);
+        records.putInt(offset + DESCRIPTION_OFFSET, stringsEnd);
+        if (task instanceof Deadline) {
+            records.putLong(offset + FIRST_DATE_OFFSET, Storage.toEpochMinutes(((Deadline) task).getBy()));
+        } else if (task instanceof Event) {
+            records.putLong(offset + FIRST_DATE_OFFSET, Storage.toEpochMinutes(((Event) task).getFrom()));
+            records.putLong(offset + SECOND_DATE_OFFSET, Storage.toEpochMinutes(((Event) task).getTo()));
+        }
+
+        stringsEnd += description.length;
+        count++;
+        writeHeader();
+    }
+
+    @Override
+    public Task removeTask(int index) throws ChatterboxException {
+        Task removedTask = getTask(index);
+        moveRecords(index + 1, index, count - index - 1);
+        count--;
+        writeHeader();
+        return removedTask;
+    }
+
+    @Override
+    public List<Task> removeTasks(TaskSelection selection) throws ChatterboxException {
+        checkSelection(selection);
+        ArrayList<Task> removedTasks = new ArrayList<>((int) selection.size());
+        int writeIndex = selection.getFirst();
+        for (int range = 0; range < selection.getRangeCount(); range++) {
+            for (int i = selection.getStart(range); i <= selection.getEnd(range); i++) {
+                removedTasks.add(materialize(i));
+            }
+            int keptStart = selection.getEnd(range) + 1;
+            int keptEnd = range + 1 < selection.getRangeCount() ? selection.getStart(range + 1) : count;
+            moveRecords(keptStart, writeIndex, keptEnd - keptStart);
+            writeIndex += keptEnd - keptStart;
+        }
+        count = writeIndex;
+        writeHeader();
+        return removedTasks;
+    }
+
+    @Override
+    public Task getTask(int index) throws ChatterboxException {
+        checkIndex(index);
+        return materialize(index);
+    }
+
+    @Override
+    public void markTask(int index, boolean isDone) throws ChatterboxException {
+        checkIndex(index);
+        records.put(recordOffset(index) + DONE_OFFSET, (byte) (isDone ? 1 : 0));
+    }
+
+    @Override
+    public Task getTaskById(int id) throws ChatterboxException {
+        return materialize(getIndexById(id));
+    }
+
+    /**
+     * Finds the task with the specified ID by scanning the records, as the store keeps no map of them.
+     */
+    @Override
+    public int getIndexById(int id) throws ChatterboxException {
+        for (int i = 0; i < count; i++) {
+            if (records.getInt(recordOffset(i) + ID_OFFSET) == id) {
+                return i;
+            }
+        }
+        throw new ChatterboxException("Task with ID " + id + " does not exist.");
+    }
+
+    /**
+     * Returns a read-only view of all tasks that creates each Task only when it is accessed.
+     *
+     * @return List of all tasks.
+     */
+    @Override
+    public List<Task> getAllTasks() {
+        return new AbstractList<Task>() {
+            @Override
+            public Task get(int index) {
+                Objects.checkIndex(index, count);
+                return materialize(index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findTasksByKeyword(String keyword) {
+        String lowerKeyword = keyword.toLowerCase();
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (readDescription(recordOffset(i)).toLowerCase().contains(lowerKeyword)) {
+                result.add(new IndexedTask(i, materialize(i)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findTasksBetweenDates(LocalDateTime start, LocalDateTime end) {
+        long startMinute = Storage.toEpochMinutes(start.toLocalDate().atStartOfDay());
+        long endMinute = Storage.toEpochMinutes(end.toLocalDate().plusDays(1).atStartOfDay());
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int offset = recordOffset(i);
+            byte type = records.get(offset + TYPE_OFFSET);
+            long firstDate = records.getLong(offset + FIRST_DATE_OFFSET);
+            boolean isMatch;
+            if (type == 'D') {
+                isMatch = firstDate >= startMinute && firstDate < endMinute;
+            } else if (type == 'E') {
+                isMatch = firstDate < endMinute && records.getLong(offset + SECOND_DATE_OFFSET) >= startMinute;
+            } else {
+                isMatch = false;
+            }
+            if (isMatch) {
+                result.add(new IndexedTask(i, materialize(i)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findTasks(TaskView view) {
+        return view.apply(getAllTasks());
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findPendingTasksBetween(LocalDateTime start, LocalDateTime end,
+            Task.TaskType... types) {
+        return filterPendingTasksBetween(start, end, types);
+    }
+
+    /**
+     * Forces all changes to disk and closes the underlying files.
+     *
+     * @throws ChatterboxException If an error occurs while closing the files.
+     */
+    public void close() throws ChatterboxException {
+        try {
+            records.force();
+            strings.force();
+            recordChannel.close();
+            stringChannel.close();
+        } catch (IOException e) {
+            throw new ChatterboxException("Error closing task store: " + e.getMessage());
+        }
+    }
+
+    private Task materialize(int index) {
+        int offset = recordOffset(index);
+        boolean isDone = records.get(offset + DONE_OFFSET) != 0;
+        String description = readDescription(offset);
+        Task task;
+        switch (records.get(offset + TYPE_OFFSET)) {
+        case 'D':
+            task = new Deadline(description,
+                    Storage.fromEpochMinutes(records.getLong(offset + FIRST_DATE_OFFSET)), isDone);
+            break;
+        case 'E':
+            task = new Event(description,
+                    Storage.fromEpochMinutes(records.getLong(offset + FIRST_DATE_OFFSET)),
+                    Storage.fromEpochMinutes(records.getLong(offset + SECOND_DATE_OFFSET)), isDone);
+            break;
+        default:
+            task = new ToDo(description, isDone);
+            break;
+        }
+        task.setId(records.getInt(offset + ID_OFFSET));
+        return task;
+    }
+
+    private String readDescription(int recordOffset) {
+        byte[] description = new byte[records.getInt(recordOffset + DESCRIPTION_LENGTH_OFFSET)];
+        strings.get(records.getInt(recordOffset + DESCRIPTION_OFFSET), description);
+        return new String(description, StandardCharsets.UTF_8);
+    }
+
+    private void checkIndex(int index) throws ChatterboxException {
+        if (index < 0 || index >= count) {
+            throw new ChatterboxException("Task number " + (index + 1) + " does not exist.");
+        }
+    }
+
+    private static int recordOffset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    /**
+     * Moves the given number of records from one index to another. The two ranges may overlap,
+     * and ByteBuffer does not promise to copy overlapping ranges within one buffer correctly,
+     * so the records go through an array in chunks, starting from the end that the move
+     * overwrites last.
+     */
+    private void moveRecords(int fromIndex, int toIndex, int recordCount) {
+        int length = recordCount * RECORD_SIZE;
+        int source = recordOffset(fromIndex);
+        int target = recordOffset(toIndex);
+        byte[] chunk = new byte[Math.min(length, MOVE_CHUNK_SIZE)];
+        for (int moved = 0; moved < length; moved += chunk.length) {
+            int chunkLength = Math.min(chunk.length, length - moved);
+            int chunkStart = target > source ? length - moved - chunkLength : moved;
+            records.get(source + chunkStart, chunk, 0, chunkLength);
+            records.put(target + chunkStart, chunk, 0, chunkLength);
+        }
+    }
+
+    private void writeHeader() {
+        records.putInt(COUNT_OFFSET, count);
+        records.putLong(STRINGS_END_OFFSET, stringsEnd);
+        records.putInt(NEXT_ID_OFFSET, nextId);
+    }
+
+    /**
+     * Grows the mapped files, doubling their size, so that one more task with a description
+     * of the given length fits.
+     */
+    private void ensureCapacity(int descriptionLength) {
+        try {
+            long neededRecords = recordOffset(count) + (long) RECORD_SIZE;
+            if (neededRecords > records.capacity()) {
+                records = recordChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        Math.min(Integer.MAX_VALUE, Math.max(neededRecords, 2L * records.capacity())));
+            }
+            long neededStrings = (long) stringsEnd + descriptionLength;
+            if (neededStrings > strings.capacity()) {
+                strings = stringChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        Math.min(Integer.MAX_VALUE, Math.max(neededStrings, 2L * strings.capacity())));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
+
+/**
+ * A TaskList that stores tasks as parallel primitive arrays rather than Task objects:
+ * a type byte, a done bit, epoch-minute longs for dates and an interned description
+ * per task. Task objects are only created when a task is retrieved, rendered or found.
+ * This takes a fraction of the memory of a list of Task objects, mostly by avoiding
+ * the LocalDateTime objects of deadlines and events.
+ */
+class PackedTaskList extends TaskList {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private long[] firstDates = new long[INITIAL_CAPACITY];
+    private long[] secondDates = new long[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private BitSet doneFlags = new BitSet();
+    private int count;
+
+    /**
+     * Constructs an empty PackedTaskList.
+     */
+    public PackedTaskList() {
+        super();
+    }
+
+    /**
+     * Constructs a PackedTaskList holding the specified tasks.
+     *
+     * @param tasks List of tasks to initialise the PackedTaskList with.
+     */
+    public PackedTaskList(List<Task> tasks) {
+        super();
+        for (Task task : tasks) {
+            addTask(task);
+        }
+    }
+
+    @Override
+    public void addTask(Task task) {
+        ensureCapacity();
+        assignId(task);
+        write(count, task);
+        count++;
+    }
+
+    @Override
+    public void insertTask(int index, Task task) throws ChatterboxException {
+        checkInsertion(TaskSelection.of(index), 1);
+        ensureCapacity();
+        assignId(task);
+        int moved = count - index;
+        System.arraycopy(types, index, types, index + 1, moved);
+        System.arraycopy(firstDates, index, firstDates, index + 1, moved);
+        System.arraycopy(secondDates, index, secondDates, index + 1, moved);
+        System.arraycopy(descriptions, index, descriptions, index + 1, moved);
+        System.arraycopy(ids, index, ids, index + 1, moved);
+
+        BitSet movedFlags = doneFlags.get(index, count);
+        doneFlags.clear(index, count);
+        for (int bit = movedFlags.nextSetBit(0); bit >= 0; bit = movedFlags.nextSetBit(bit + 1)) {
+            doneFlags.set(index + 1 + bit);
+        }
+
+        write(index, task);
+        count++;
+    }
+
+    /**
+     * Inserts the tasks one at a time, as the arrays cannot be merged any faster than they are shifted.
+     */
+    @Override
+    public void insertTasks(TaskSelection selection, List<Task> tasks) throws ChatterboxException {
+        checkInsertion(selection, tasks.size());
+        insertEach(selection, tasks);
+    }
+
+    private void ensureCapacity() {
+        if (count == types.length) {
+            int capacity = count * 2;
+            types = Arrays.copyOf(types, capacity);
+            firstDates = Arrays.copyOf(firstDates, capacity);
+            secondDates = Arrays.copyOf(secondDates, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+    }
+
+    private void write(int index, Task task) {
+        ids[index] = task.getId();
+        types[index] = (byte) task.type.getIcon().charAt(0);
+        descriptions[index] = task.getDescription().intern();
+        doneFlags.set(index, task.isDone());
+        if (task instanceof Deadline) {
+            firstDates[index] = Storage.toEpochMinutes(((Deadline) task).getBy());
+        } else if (task instanceof Event) {
+            firstDates[index] = Storage.toEpochMinutes(((Event) task).getFrom());
+            secondDates[index] = Storage.toEpochMinutes(((Event) task).getTo());
+        }
+    }
+
+    @Override
+    public Task removeTask(int index) throws ChatterboxException {
+        Task removedTask = getTask(index);
+        int moved = count - index - 1;
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(firstDates, index + 1, firstDates, index, moved);
+        System.arraycopy(secondDates, index + 1, secondDates, index, moved);
+        System.arraycopy(descriptions, index + 1, descriptions, index, moved);
+        System.arraycopy(ids, index + 1, ids, index, moved);
+
+        BitSet movedFlags = doneFlags.get(index + 1, count);
+        doneFlags.clear(index, count);
+        for (int bit = movedFlags.nextSetBit(0); bit >= 0; bit = movedFlags.nextSetBit(bit + 1)) {
+            doneFlags.set(index + bit);
+        }
+
+        count--;
+        descriptions[count] = null;
+        return removedTask;
+    }
+
+    @Override
+    public List<Task> removeTasks(TaskSelection selection) throws ChatterboxException {
+        checkSelection(selection);
+        ArrayList<Task> removedTasks = new ArrayList<>((int) selection.size());
+        BitSet keptFlags = doneFlags.get(0, selection.getFirst());
+        int writeIndex = selection.getFirst();
+        for (int range = 0; range < selection.getRangeCount(); range++) {
+            for (int i = selection.getStart(range); i <= selection.getEnd(range); i++) {
+                removedTasks.add(materialize(i));
+            }
+            int keptStart = selection.getEnd(range) + 1;
+            int keptEnd = range + 1 < selection.getRangeCount() ? selection.getStart(range + 1) : count;
+            int kept = keptEnd - keptStart;
+            System.arraycopy(types, keptStart, types, writeIndex, kept);
+            System.arraycopy(firstDates, keptStart, firstDates, writeIndex, kept);
+            System.arraycopy(secondDates, keptStart, secondDates, writeIndex, kept);
+            System.arraycopy(descriptions, keptStart, descriptions, writeIndex, kept);
+            System.arraycopy(ids, keptStart, ids, writeIndex, kept);
+            for (int bit = doneFlags.nextSetBit(keptStart); bit >= 0 && bit < keptEnd;
+                    bit = doneFlags.nextSetBit(bit + 1)) {
+                keptFlags.set(writeIndex + bit - keptStart);
+            }
+            writeIndex += kept;
+        }
+        Arrays.fill(descriptions, writeIndex, count, null);
+        doneFlags = keptFlags;
+        count = writeIndex;
+        return removedTasks;
+    }
+
+    @Override
+    public Task getTask(int index) throws ChatterboxException {
+        if (index < 0 || index >= count) {
+            throw new ChatterboxException("Task number " + (index + 1) + " does not exist.");
+        }
+        return materialize(index);
+    }
+
+    @Override
+    public void markTask(int index, boolean isDone) throws ChatterboxException {
+        if (index < 0 || index >= count) {
+            throw new ChatterboxException("Task number " + (index + 1) + " does not exist.");
+        }
+        doneFlags.set(index, isDone);
+    }
+
+    @Override
+    public Task getTaskById(int id) throws ChatterboxException {
+        return materialize(getIndexById(id));
+    }
+
+    /**
+     * Finds the task with the specified ID by scanning the IDs, as this list keeps no map of them.
+     */
+    @Override
+    public int getIndexById(int id) throws ChatterboxException {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        throw new ChatterboxException("Task with ID " + id + " does not exist.");
+    }
+
+    /**
+     * Returns a read-only view of all tasks that creates each Task only when it is accessed.
+     *
+     * @return List of all tasks.
+     */
+    @Override
+    public List<Task> getAllTasks() {
+        return new AbstractList<Task>() {
+            @Override
+            public Task get(int index) {
+                Objects.checkIndex(index, count);
+                return materialize(index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findTasksByKeyword(String keyword) {
+        String lowerKeyword = keyword.toLowerCase();
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (descriptions[i].toLowerCase().contains(lowerKeyword)) {
+                result.add(new IndexedTask(i, materialize(i)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findTasksBetweenDates(LocalDateTime start, LocalDateTime end) {
+        long startMinute = Storage.toEpochMinutes(start.toLocalDate().atStartOfDay());
+        long endMinute = Storage.toEpochMinutes(end.toLocalDate().plusDays(1).atStartOfDay());
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            boolean isMatch;
+            if (types[i] == 'D') {
+                isMatch = firstDates[i] >= startMinute && firstDates[i] < endMinute;
+            } else if (types[i] == 'E') {
+                isMatch = firstDates[i] < endMinute && secondDates[i] >= startMinute;
+            } else {
+                isMatch = false;
+            }
+            if (isMatch) {
+                result.add(new IndexedTask(i, materialize(i)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findTasks(TaskView view) {
+        return view.apply(getAllTasks());
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findPendingTasksBetween(LocalDateTime start, LocalDateTime end,
+            Task.TaskType... types) {
+        return filterPendingTasksBetween(start, end, types);
+    }
+
+    private Task materialize(int index) {
+        boolean isDone = doneFlags.get(index);
+        Task task;
+        switch (types[index]) {
+        case 'D':
+            task = new Deadline(descriptions[index], Storage.fromEpochMinutes(firstDates[index]), isDone);
+            break;
+        case 'E':
+            task = new Event(descriptions[index], Storage.fromEpochMinutes(firstDates[index]),
+                    Storage.fromEpochMinutes(secondDates[index]), isDone);
+            break;
+        default:
+            task = new ToDo(descriptions[index], isDone);
+            break;
+        }
+        task.setId(ids[index]);
+        return task;
+    }
+}
+
+/**
+ * A TaskList that can be shared between threads.
+ * The tasks are kept in an immutable snapshot of fixed-capacity chunks that is replaced
+ * on every change, copying only the changed chunk and the small chunk tables, so that reads
+ * (listing and both searches) never block and always see one consistent version of the list.
+ * Changes are serialized on the list's monitor; callers may hold the monitor themselves to
+ * make several changes atomic, as server sessions do for each batch of commands.
+ *
+ * Indexes are positions in the version of the list a call sees. The indexes returned by a
+ * search stay consistent with the tasks returned alongside them, but a removal by another
+ * thread afterwards may shift them; to act on an index seen in an earlier read, hold the
+ * monitor across both calls. Marking a task never moves it, and its done flag is volatile,
+ * so a mark is visible to every later read without a new snapshot.
+ */
+class ConcurrentTaskList extends TaskList {
+    static final int CHUNK_SIZE = 1024;
+
+    /**
+     * An immutable version of the list: its chunks, none of them empty, and the index of the
+     * first task of each chunk followed by the number of tasks. The tasks in date order are
+     * worked out once per version, on the first view sorted by date; marking does not change
+     * that order, so done and pending views filter it as they read it.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new Task[0][], new int[] {0});
+
+        private final Task[][] chunks;
+        private final int[] chunkStarts;
+        private volatile IndexedTask[] dateOrder;
+
+        Snapshot(Task[][] chunks, int[] chunkStarts) {
+            this.chunks = chunks;
+            this.chunkStarts = chunkStarts;
+        }
+
+        static Snapshot of(List<Task> tasks) {
+            int chunkCount = (tasks.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            Task[][] chunks = new Task[chunkCount][];
+            int[] chunkStarts = new int[chunkCount + 1];
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                int start = chunk * CHUNK_SIZE;
+                chunks[chunk] = tasks.subList(start, Math.min(start + CHUNK_SIZE, tasks.size())).toArray(new Task[0]);
+                chunkStarts[chunk] = start;
+            }
+            chunkStarts[chunkCount] = tasks.size();
+            return new Snapshot(chunks, chunkStarts);
+        }
+
+        int size() {
+            return chunkStarts[chunks.length];
+        }
+
+        Task get(int index) {
+            int chunk = chunkOf(index);
+            return chunks[chunk][index - chunkStarts[chunk]];
+        }
+
+        int chunkOf(int index) {
+            int found = Arrays.binarySearch(chunkStarts, 0, chunks.length, index);
+            return found >= 0 ? found : -found - 2;
+        }
+
+        IndexedTask[] dateOrder() {
+            IndexedTask[] order = dateOrder;
+            if (order == null) {
+                order = new IndexedTask[size()];
+                for (int chunk = 0; chunk < chunks.length; chunk++) {
+                    for (int i = 0; i < chunks[chunk].length; i++) {
+                        order[chunkStarts[chunk] + i] = new IndexedTask(chunkStarts[chunk] + i, chunks[chunk][i]);
+                    }
+                }
+                Arrays.sort(order, Comparator.comparing(IndexedTask::getTask, TaskView.DATE_ORDER));
+                dateOrder = order;
+            }
+            return order;
+        }
+
+        Snapshot withAdded(Task task) {
+            int last = chunks.length - 1;
+            if (last >= 0 && chunks[last].length < CHUNK_SIZE) {
+                Task[][] newChunks = chunks.clone();
+                newChunks[last] = Arrays.copyOf(chunks[last], chunks[last].length + 1);
+                newChunks[last][chunks[last].length] = task;
+                int[] newStarts = chunkStarts.clone();
+                newStarts[last + 1]++;
+                return new Snapshot(newChunks, newStarts);
+            }
+            Task[][] newChunks = Arrays.copyOf(chunks, chunks.length + 1);
+            newChunks[chunks.length] = new Task[] {task};
+            int[] newStarts = Arrays.copyOf(chunkStarts, chunkStarts.length + 1);
+            newStarts[chunks.length + 1] = size() + 1;
+            return new Snapshot(newChunks, newStarts);
+        }
+
+        /**
+         * Returns this version with the task inserted at the given index, which must be within
+         * the list. A chunk that grows beyond the chunk size is split in two.
+         */
+        Snapshot withInserted(int index, Task task) {
+            int chunk = chunkOf(index);
+            Task[] oldChunk = chunks[chunk];
+            int offset = index - chunkStarts[chunk];
+            Task[] newChunk = new Task[oldChunk.length + 1];
+            System.arraycopy(oldChunk, 0, newChunk, 0, offset);
+            newChunk[offset] = task;
+            System.arraycopy(oldChunk, offset, newChunk, offset + 1, oldChunk.length - offset);
+
+            Task[][] newChunks;
+            int[] newStarts;
+            int firstMovedStart;
+            if (newChunk.length <= CHUNK_SIZE) {
+                newChunks = chunks.clone();
+                newChunks[chunk] = newChunk;
+                newStarts = chunkStarts.clone();
+                firstMovedStart = chunk + 1;
+            } else {
+                int half = newChunk.length / 2;
+                newChunks = new Task[chunks.length + 1][];
+                System.arraycopy(chunks, 0, newChunks, 0, chunk);
+                newChunks[chunk] = Arrays.copyOf(newChunk, half);
+                newChunks[chunk + 1] = Arrays.copyOfRange(newChunk, half, newChunk.length);
+                System.arraycopy(chunks, chunk + 1, newChunks, chunk + 2, chunks.length - chunk - 1);
+                newStarts = new int[chunkStarts.length + 1];
+                System.arraycopy(chunkStarts, 0, newStarts, 0, chunk + 1);
+                newStarts[chunk + 1] = chunkStarts[chunk] + half;
+                System.arraycopy(chunkStarts, chunk + 1, newStarts, chunk + 2, chunkStarts.length - chunk - 1);
+                firstMovedStart = chunk + 2;
+            }
+            for (int i = firstMovedStart; i < newStarts.length; i++) {
+                newStarts[i]++;
+            }
+            return new Snapshot(newChunks, newStarts);
+        }
+
+        /**
+         * Returns this version without the task at the given index. A chunk left empty is
+         * dropped, and a chunk that fits into its successor is merged with it, so removals
+         * do not leave a long tail of tiny chunks behind.
+         */
+        Snapshot withRemoved(int index) {
+            int chunk = chunkOf(index);
+            Task[] oldChunk = chunks[chunk];
+            int offset = index - chunkStarts[chunk];
+            Task[] newChunk = new Task[oldChunk.length - 1];
+            System.arraycopy(oldChunk, 0, newChunk, 0, offset);
+            System.arraycopy(oldChunk, offset + 1, newChunk, offset, newChunk.length - offset);
+
+            boolean isMerged = chunk + 1 < chunks.length
+                    && newChunk.length + chunks[chunk + 1].length <= CHUNK_SIZE;
+            if (isMerged) {
+                Task[] next = chunks[chunk + 1];
+                newChunk = Arrays.copyOf(newChunk, newChunk.length + next.length);
+                System.arraycopy(next, 0, newChunk, oldChunk.length - 1, next.length);
+            }
+            int droppedChunk = isMerged ? chunk + 1 : newChunk.length == 0 ? chunk : -1;
+
+            Task[][] newChunks;
+            int[] newStarts;
+            if (droppedChunk < 0) {
+                newChunks = chunks.clone();
+                newStarts = chunkStarts.clone();
+            } else {
+                newChunks = new Task[chunks.length - 1][];
+                System.arraycopy(chunks, 0, newChunks, 0, droppedChunk);
+                System.arraycopy(chunks, droppedChunk + 1, newChunks, droppedChunk, newChunks.length - droppedChunk);
+                newStarts = new int[chunkStarts.length - 1];
+                System.arraycopy(chunkStarts, 0, newStarts, 0, droppedChunk);
+                System.arraycopy(chunkStarts, droppedChunk + 1, newStarts, droppedChunk,
+                        newStarts.length - droppedChunk);
+            }
+            if (newChunk.length > 0) {
+                newChunks[chunk] = newChunk;
+            }
+            for (int i = droppedChunk == chunk ? chunk : chunk + 1; i < newStarts.length; i++) {
+                newStarts[i]--;
+            }
+            return new Snapshot(newChunks, newStarts);
+        }
+    }
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final ConcurrentHashMap<Integer, Task> tasksById = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty ConcurrentTaskList.
+     */
+    public ConcurrentTaskList() {
+        super();
+    }
+
+    /**
+     * Constructs a ConcurrentTaskList holding the specified tasks.
+     *
+     * @param tasks List of tasks to initialise the ConcurrentTaskList with.
+     */
+    public ConcurrentTaskList(List<Task> tasks) {
+        super();
+        assignIds(tasks);
+        snapshot = Snapshot.of(tasks);
+        for (Task task : tasks) {
+            tasksById.put(task.getId(), task);
+        }
+    }
+
+    @Override
+    public synchronized void addTask(Task task) {
+        assignId(task);
+        snapshot = snapshot.withAdded(task);
+        tasksById.put(task.getId(), task);
+    }
+
+    @Override
+    public synchronized Task removeTask(int index) throws ChatterboxException {
+        Task removedTask = getTask(index);
+        snapshot = snapshot.withRemoved(index);
+        tasksById.remove(removedTask.getId());
+        return removedTask;
+    }
+
+    @Override
+    public synchronized void insertTask(int index, Task task) throws ChatterboxException {
+        checkInsertion(TaskSelection.of(index), 1);
+        if (index == size()) {
+            addTask(task);
+            return;
+        }
+        assignId(task);
+        snapshot = snapshot.withInserted(index, task);
+        tasksById.put(task.getId(), task);
+    }
+
+    /**
+     * Inserts the tasks, rebuilding the chunks in a single pass over the list.
+     */
+    @Override
+    public synchronized void insertTasks(TaskSelection selection, List<Task> tasks) throws ChatterboxException {
+        checkInsertion(selection, tasks.size());
+        ArrayList<Task> allTasks = new ArrayList<>(getAllTasks());
+        selection.insertInto(allTasks, tasks);
+        for (Task task : tasks) {
+            assignId(task);
+            tasksById.put(task.getId(), task);
+        }
+        snapshot = Snapshot.of(allTasks);
+    }
+
+    /**
+     * Removes all selected tasks, rebuilding the chunks in a single pass over the list.
+     */
+    @Override
+    public synchronized List<Task> removeTasks(TaskSelection selection) throws ChatterboxException {
+        checkSelection(selection);
+        ArrayList<Task> keptTasks = new ArrayList<>(getAllTasks());
+        ArrayList<Task> removedTasks = selection.removeFrom(keptTasks);
+        snapshot = Snapshot.of(keptTasks);
+        for (Task removedTask : removedTasks) {
+            tasksById.remove(removedTask.getId());
+        }
+        return removedTasks;
+    }
+
+    @Override
+    public Task getTask(int index) throws ChatterboxException {
+        Snapshot current = snapshot;
+        if (index < 0 || index >= current.size()) {
+            throw new ChatterboxException("Task number " + (index + 1) + " does not exist.");
+        }
+        return current.get(index);
+    }
+
+    @Override
+    public Task getTaskById(int id) throws ChatterboxException {
+        Task task = tasksById.get(id);
+        if (task == null) {
+            throw new ChatterboxException("Task with ID " + id + " does not exist.");
+        }
+        return task;
+    }
+
+    /**
+     * Finds the index of the task with the specified ID by scanning the current version of the list.
+     */
+    @Override
+    public int getIndexById(int id) throws ChatterboxException {
+        Snapshot current = snapshot;
+        for (int chunk = 0; chunk < current.chunks.length; chunk++) {
+            Task[] tasks = current.chunks[chunk];
+            for (int i = 0; i < tasks.length; i++) {
+                if (tasks[i].getId() == id) {
+                    return current.chunkStarts[chunk] + i;
+                }
+            }
+        }
+        throw new ChatterboxException("Task with ID " + id + " does not exist.");
+    }
+
+    @Override
+    public synchronized void markTask(int index, boolean isDone) throws ChatterboxException {
+        super.markTask(index, isDone);
+    }
+
+    @Override
+    public synchronized void markTasks(TaskSelection selection, boolean isDone) throws ChatterboxException {
+        super.markTasks(selection, isDone);
+    }
+
+    /**
+     * Returns a read-only view of the current version of the list, which later changes
+     * do not affect.
+     *
+     * @return List of all tasks.
+     */
+    @Override
+    public List<Task> getAllTasks() {
+        Snapshot current = snapshot;
+        return new AbstractList<Task>() {
+            @Override
+            public Task get(int index) {
+                Objects.checkIndex(index, current.size());
+                return current.get(index);
+            }
+
+            @Override
+            public int size() {
+                return current.size();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findTasksByKeyword(String keyword) {
+        String lowerKeyword = keyword.toLowerCase();
+        Snapshot current = snapshot;
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        for (int chunk = 0; chunk < current.chunks.length; chunk++) {
+            Task[] tasks = current.chunks[chunk];
+            for (int i = 0; i < tasks.length; i++) {
+                if (tasks[i].getDescription().toLowerCase().contains(lowerKeyword)) {
+                    result.add(new IndexedTask(current.chunkStarts[chunk] + i, tasks[i]));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findTasksBetweenDates(LocalDateTime start, LocalDateTime end) {
+        LocalDate startDate = start.toLocalDate();
+        LocalDate endDate = end.toLocalDate();
+        Snapshot current = snapshot;
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        for (int chunk = 0; chunk < current.chunks.length; chunk++) {
+            Task[] tasks = current.chunks[chunk];
+            for (int i = 0; i < tasks.length; i++) {
+                boolean isMatch;
+                if (tasks[i] instanceof Deadline) {
+                    LocalDate date = ((Deadline) tasks[i]).getBy().toLocalDate();
+                    isMatch = !date.isBefore(startDate) && !date.isAfter(endDate);
+                } else if (tasks[i] instanceof Event) {
+                    Event event = (Event) tasks[i];
+                    isMatch = !event.getFrom().toLocalDate().isAfter(endDate)
+                            && !event.getTo().toLocalDate().isBefore(startDate);
+                } else {
+                    isMatch = false;
+                }
+                if (isMatch) {
+                    result.add(new IndexedTask(current.chunkStarts[chunk] + i, tasks[i]));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ArrayList<IndexedTask> findTasks(TaskView view) {
+        if (!view.isSortedByDate()) {
+            return view.apply(getAllTasks());
+        }
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        for (IndexedTask found : snapshot.dateOrder()) {
+            if (view.matches(found.getTask())) {
+                result.add(found);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the tasks by binary searching the date order of the current version for the start
+     * of the range, so only the tasks within the range are visited.
+     */
+    @Override
+    public ArrayList<IndexedTask> findPendingTasksBetween(LocalDateTime start, LocalDateTime end,
+            Task.TaskType... types) {
+        IndexedTask[] order = snapshot.dateOrder();
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            LocalDateTime dateTime = order[middle].getTask().getDateTime();
+            if (dateTime != null && dateTime.isBefore(start)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        List<Task.TaskType> typeList = Arrays.asList(types);
+        ArrayList<IndexedTask> result = new ArrayList<>();
+        for (int i = low; i < order.length; i++) {
+            Task task = order[i].getTask();
+            if (task.getDateTime() == null || !task.getDateTime().isBefore(end)) {
+                break;
+            }
+            if (!task.isDone() && typeList.contains(task.type)) {
+                result.add(order[i]);
+            }
+        }
+        return result;
+    }
+}
+
+class Ui {
+
+        /**
+         * Shows the list of tasks that match a keyword search, numbered by their position in the list.
+         *
+         * @param foundTasks List of matching tasks with their indexes.
+         * @param keyword The keyword used for searching.
+         */
+        public void showMatchingTasks(ArrayList<IndexedTask> foundTasks, String keyword) {
+            out.println(" Here are the matching tasks in your list:");
+            if (foundTasks.isEmpty()) {
+                out.println(" No matching tasks found.");
+            } else {
+                for (IndexedTask foundTask : foundTasks) {
+                    out.println(" " + (foundTask.getIndex() + 1) + "." + foundTask.getTask());
+                }
+            }
+        }
+    private static final String LINE = "________________________________";
+    private static final int LIST_CHUNK_SIZE = 1000;
+    private BufferedReader reader;
+    private PrintWriter out;
+    
+    public Ui() {
+        this(System.in, System.out);
+    }
+
+    /**
+     * Constructs a Ui that reads commands from the given input and shows output on the given output.
+     *
+     * @param in Input to read commands from.
+     * @param output Output to show messages on.
+     */
+    public Ui(InputStream in, OutputStream output) {
+        reader = new BufferedReader(new InputStreamReader(in));
+        out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(output)), false);
+    }
+    
+    public void showWelcome() {
+        showLine();
+        out.println(" Hello! I'm Chatterbox");
+        out.println(" What can I do for you?");
+        showLine();
+    }
+
+    /**
+     * Shows the welcome message, followed by the tasks that fall due soon, if there are any.
+     *
+     * @param dueTasks Pending tasks falling due within the next hours, with their indexes.
+     * @param hours Number of hours looked ahead.
+     */
+    public void showWelcome(List<IndexedTask> dueTasks, int hours) {
+        showWelcome();
+        if (!dueTasks.isEmpty()) {
+            out.println(" Coming up in the next " + hours + " hours:");
+            showIndexedTasks(dueTasks);
+            showLine();
+        }
+    }
+    
+    public void showGoodbye() {
+        out.println(" Bye! Hope to see you again soon!");
+    }
+    
+    public void showLine() {
+        out.println(LINE);
+    }
+    
+    /**
+     * Reads the next line of user input.
+     *
+     * @return The line read, or null if the input has ended.
+     */
+    public String readCommand() {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether another line of input can be read without waiting for the user,
+     * e.g. when commands are piped in from a file.
+     *
+     * @return True if input is immediately available, false otherwise.
+     */
+    public boolean hasPendingInput() {
+        try {
+            return reader.ready();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    public void showError(String message) {
+        out.println(" OOPS!!! " + message);
+    }
+    
+    public void showLoadingError(String message) {
+        System.err.println("Error loading tasks: " + message);
+    }
+    
+    public void showTaskAdded(Task task, int totalTasks) {
+        out.println(" Got it. I've added this task:");
+        out.println("   " + task);
+        out.println(" Now you have " + totalTasks + " tasks in the list.");
+    }
+    
+    public void showTaskRemoved(Task task, int totalTasks) {
+        out.println(" Noted. I've removed this task:");
+        out.println("   " + task);
+        out.println(" Now you have " + totalTasks + " tasks in the list.");
+    }
+    
+    public void showTaskMarked(Task task, boolean isDone) {
+        if (isDone) {
+            out.println(" Nice! Congrats on finishing this task!");
+        } else {
+            out.println(" OK, I've forgotten about it already!");
+        }
+        out.println("   " + task);
+    }
+    
+    /**
+     * Shows a summary of a bulk mark or unmark, rather than every marked task.
+     *
+     * @param taskCount Number of tasks marked.
+     * @param selection Task numbers of the marked tasks, as given by the user.
+     * @param isDone True if the tasks were marked as done, false otherwise.
+     */
+    public void showTasksMarked(long taskCount, String selection, boolean isDone) {
+        if (isDone) {
+            out.println(" Nice! Congrats on finishing these " + taskCount + " tasks: " + selection);
+        } else {
+            out.println(" OK, I've marked these " + taskCount + " tasks as not done yet: " + selection);
+        }
+    }
+
+    /**
+     * Shows a summary of a bulk delete, rather than every removed task.
+     *
+     * @param taskCount Number of tasks removed.
+     * @param selection Task numbers of the removed tasks, as given by the user.
+     * @param totalTasks Number of tasks left in the list.
+     */
+    public void showTasksRemoved(long taskCount, String selection, int totalTasks) {
+        out.println(" Noted. I've removed these " + taskCount + " tasks: " + selection);
+        out.println(" Now you have " + totalTasks + " tasks in the list.");
+    }
+    
+    public void showTaskRestored(Task task, int totalTasks) {
+        out.println(" OK, I've put this task back:");
+        out.println("   " + task);
+        out.println(" Now you have " + totalTasks + " tasks in the list.");
+    }
+
+    /**
+     * Shows a summary of tasks put back by an undo, rather than every restored task.
+     *
+     * @param taskCount Number of tasks put back.
+     * @param selection Task numbers of the restored tasks.
+     * @param totalTasks Number of tasks in the list now.
+     */
+    public void showTasksRestored(long taskCount, String selection, int totalTasks) {
+        out.println(" OK, I've put back these " + taskCount + " tasks: " + selection);
+        out.println(" Now you have " + totalTasks + " tasks in the list.");
+    }
+
+    /**
+     * Introduces the output of a change that is being undone or redone.
+     *
+     * @param isRedo True if the change is being redone, false if it is being undone.
+     */
+    public void showUndo(boolean isRedo) {
+        out.println(isRedo ? " Redoing your last undone change:" : " Undoing your last change:");
+    }
+    
+    /**
+     * Shows all tasks, flushing the output in chunks so that long lists stream out
+     * instead of being held in the output buffer.
+     *
+     * @param tasks List of all tasks.
+     */
+    public void showTaskList(List<Task> tasks) {
+        out.println(" Here are the tasks in your list:");
+        showTasks(tasks, 0, tasks.size());
+    }
+
+    /**
+     * Shows one page of tasks.
+     *
+     * @param tasks List of all tasks.
+     * @param page Page number to show (1-based).
+     * @param pageSize Number of tasks per page.
+     */
+    public void showTaskPage(List<Task> tasks, int page, int pageSize) {
+        int pageCount = Math.max(1, (tasks.size() + pageSize - 1) / pageSize);
+        out.println(" Here are the tasks in your list (page " + page + " of " + pageCount + "):");
+        int fromIndex = Math.min(tasks.size(), (page - 1) * pageSize);
+        showTasks(tasks, fromIndex, Math.min(tasks.size(), fromIndex + pageSize));
+    }
+
+    /**
+     * Shows the tasks of a list view, or one page of them, numbered by their position in the list.
+     *
+     * @param tasks Shown tasks with their indexes, in view order.
+     * @param description Description of the shown tasks, e.g. "pending tasks in your list".
+     * @param page Page number to show (1-based), or 0 to show all shown tasks.
+     * @param pageSize Number of tasks per page.
+     */
+    public void showTaskView(List<IndexedTask> tasks, String description, int page, int pageSize) {
+        int fromIndex = 0;
+        int toIndex = tasks.size();
+        if (page > 0) {
+            int pageCount = Math.max(1, (tasks.size() + pageSize - 1) / pageSize);
+            out.println(" Here are the " + description + " (page " + page + " of " + pageCount + "):");
+            fromIndex = Math.min(tasks.size(), (page - 1) * pageSize);
+            toIndex = Math.min(tasks.size(), fromIndex + pageSize);
+        } else {
+            out.println(" Here are the " + description + ":");
+        }
+        if (tasks.isEmpty()) {
+            out.println(" No matching tasks found.");
+        }
+        for (int i = fromIndex; i < toIndex; i++) {
+            IndexedTask task = tasks.get(i);
+            out.println(" " + (task.getIndex() + 1) + "." + task.getTask());
+            if ((i - fromIndex + 1) % LIST_CHUNK_SIZE == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    public void showDueTasks(List<IndexedTask> tasks, int hours) {
+        if (tasks.isEmpty()) {
+            out.println(" Nothing is due in the next " + hours + " hours.");
+        } else {
+            out.println(" Here are the tasks due in the next " + hours + " hours:");
+            showIndexedTasks(tasks);
+        }
+    }
+
+    public void showOverdueTasks(List<IndexedTask> tasks) {
+        if (tasks.isEmpty()) {
+            out.println(" You have no overdue tasks.");
+        } else {
+            out.println(" Here are your overdue tasks:");
+            showIndexedTasks(tasks);
+        }
+    }
+
+    /**
+     * Shows the tasks that have just fallen due, between commands.
+     *
+     * @param tasks Tasks that have fallen due, with their indexes.
+     */
+    public void showReminders(List<IndexedTask> tasks) {
+        showLine();
+        out.println(tasks.size() == 1 ? " Reminder: this task is due now:" : " Reminder: these tasks are due now:");
+        showIndexedTasks(tasks);
+        showLine();
+    }
+
+    private void showIndexedTasks(List<IndexedTask> tasks) {
+        for (IndexedTask task : tasks) {
+            out.println(" " + (task.getIndex() + 1) + "." + task.getTask());
+        }
+    }
+
+    private void showTasks(List<Task> tasks, int fromIndex, int toIndex) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            out.println(" " + (i + 1) + "." + tasks.get(i));
+            if ((i - fromIndex + 1) % LIST_CHUNK_SIZE == 0) {
+                out.flush();
+            }
+        }
+    }
+    
+    public void showTasksBetweenDates(ArrayList<IndexedTask> tasks, String start, String end) {
+        out.println(" Tasks from " + start + " to " + end + ":");
+        if (tasks.isEmpty()) {
+            out.println(" No tasks found for these dates.");
+        } else {
+            for (IndexedTask task : tasks) {
+                out.println(" " + (task.getIndex() + 1) + "." + task.getTask());
+            }
+        }
+    }
+    
+    public void showTasksOnDate(ArrayList<IndexedTask> tasks, String date) {
+        out.println(" Tasks on " + date + ":");
+        if (tasks.isEmpty()) {
+            out.println(" No tasks found for this date.");
+        } else {
+            for (IndexedTask task : tasks) {
+                out.println(" " + (task.getIndex() + 1) + "." + task.getTask());
+            }
+        }
+    }
+    
+    /**
+     * Shows the recorded metrics, one line per entry.
+     *
+     * @param reportLines Lines of the metrics report.
+     */
+    public void showStats(List<String> reportLines) {
+        out.println(" Here are the stats since startup:");
+        for (String line : reportLines) {
+            out.println(" " + line);
+        }
+    }
+
+    /**
+     * Writes out everything shown since the last flush.
+     */
+    public void flush() {
+        out.flush();
+    }
+    
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // Nothing left to read from, so there is nothing to recover
+        }
+    }
+}
+
+// ==================== Storage ====================
+/**
+ * Handles loading and saving of tasks to and from a file for the Chatterbox application.
+ * Provides methods to persist and retrieve the task list.
+ *
+ * In journal mode, each mutation is appended as a single record to a journal file next to
+ * the data file instead of rewriting the whole list. The journal is replayed on top of the
+ * data file when loading. Once the journal grows past a record-count or byte-size threshold,
+ * it is rotated and a snapshot of the list is written back into the data file on a
+ * background thread, so that the command loop never waits for a full rewrite.
+ *
+ * With asynchronous durability, all writes go through a single background writer instead:
+ * save methods only queue a copy of the change and return, and the writer applies queued
+ * changes in order, coalescing those that arrive together. {@link #drain()} and
+ * {@link #close()} wait until every queued change is on disk.
+ *
+ * Outside journal mode and with synchronous durability, which is how the app runs by default,
+ * marks overwrite the status bytes of the last full save in place instead of saving in full.
+ */
+class Storage {
+    /**
+     * How far a change has reached when a save method returns. SYNC writes it and forces it
+     * to disk first (at the end of a batch, within one). ASYNC hands it to the background
+     * writer, which writes it without forcing it, and PERIODIC_FSYNC additionally has the
+     * writer force it to disk within a second.
+     */
+    enum Durability {
+        SYNC,
+        ASYNC,
+        PERIODIC_FSYNC
+    }
+
+    /**
+     * Returns the durability with the given name, ignoring case.
+     *
+     * @param name Name of the durability, e.g. "sync".
+     * @return The durability.
+     * @throws ChatterboxException If there is no durability with that name.
+     */
+    static Durability parseDurability(String name) throws ChatterboxException {
+        for (Durability durability : Durability.values()) {
+            if (durability.name().equalsIgnoreCase(name.trim())) {
+                return durability;
+            }
+        }
+        throw new ChatterboxException("Unknown durability '" + name + "'. Please use sync, async or periodic_fsync.");
+    }
+
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String PREVIOUS_JOURNAL_SUFFIX = ".journal.prev";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String READY_SUFFIX = ".ready";
+    private static final String RECORD_ADD = "A";
+    private static final String RECORD_MARK = "M";
+    private static final String RECORD_UNMARK = "U";
+    private static final String RECORD_DELETE = "X";
+    private static final String RECORD_INSERT = "I";
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+    private static final long DEFAULT_COMPACTION_BYTE_THRESHOLD = 4L * 1024 * 1024;
+    private static final long FSYNC_INTERVAL_MILLIS = 1000;
+    private static final Object STOP_WRITER = new Object();
+
+    private String filePath;
+    private boolean isJournalMode;
+    private int compactionThreshold;
+    private long compactionByteThreshold;
+    private int journalRecordCount;
+    private long journalByteCount;
+    private static final String FIELD_DELIMITER = " | ";
+    private static final int FILE_DATE_LENGTH = "yyyy-MM-dd HHmm".length();
+    private static final long PARALLEL_LOAD_MIN_BYTES = 1024 * 1024;
+    private static final String BINARY_EXTENSION = ".bin";
+    private static final byte[] BINARY_MAGIC = {'C', 'B', 'X'};
+    private static final int BINARY_VERSION = 2;
+    private static final int BINARY_HEADER_SIZE = BINARY_MAGIC.length + 1 + Integer.BYTES;
+    private static final int BINARY_MIN_RECORD_SIZE = 2 + Integer.BYTES + Integer.BYTES;
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+    private static final int TEXT_STATUS_OFFSET = "T | ".length();
+    private static final int BINARY_STATUS_OFFSET = 1;
+    private static final int MAX_STATUS_PATCHES = 1024;
+    private static final int MAX_ID_DIGITS = 9;
+    private FileOutputStream journalStream;
+    private BufferedWriter journalWriter;
+    private boolean hasUnforcedJournalWrites;
+    private Durability durability = Durability.SYNC;
+    private LinkedBlockingQueue<Object> writeQueue;
+    private Thread writerThread;
+    private volatile IOException writeError;
+    private ExecutorService snapshotExecutor;
+    private Future<?> pendingSnapshot;
+    private boolean isInBatch;
+    private boolean hasUnsavedChanges;
+    private boolean isParallelLoading;
+    private boolean isBinaryFormat;
+    private int lastLoadedId;
+    private int savedLayoutSize = -1;
+    private long[] statusOffsets;
+    private long savedFileSize;
+    private FileTime savedModifiedTime;
+    private FileChannel statusChannel;
+    private boolean hasUnforcedStatusWrites;
+    private Metrics metrics = new Metrics();
+    
+    /**
+     * Constructs a Storage object with the specified file path.
+     *
+     * @param filePath Path to the data file for storing tasks.
+     */
+    public Storage(String filePath) {
+        this(filePath, false);
+    }
+
+    /**
+     * Constructs a Storage object with the specified file path, optionally in journal mode.
+     *
+     * @param filePath Path to the data file for storing tasks.
+     * @param isJournalMode True to append mutations to a journal instead of rewriting the file.
+     */
+    public Storage(String filePath, boolean isJournalMode) {
+        this(filePath, isJournalMode, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Constructs a Storage object with the specified file path, journal mode and
+     * the number of journal records after which the journal is compacted into the data file.
+     *
+     * @param filePath Path to the data file for storing tasks.
+     * @param isJournalMode True to append mutations to a journal instead of rewriting the file.
+     * @param compactionThreshold Number of journal records that triggers a compaction.
+     */
+    public Storage(String filePath, boolean isJournalMode, int compactionThreshold) {
+        this(filePath, isJournalMode, compactionThreshold, DEFAULT_COMPACTION_BYTE_THRESHOLD);
+    }
+
+    /**
+     * Constructs a Storage object with the specified file path, journal mode and
+     * the journal record count and byte size after which a background snapshot is taken.
+     *
+     * @param filePath Path to the data file for storing tasks.
+     * @param isJournalMode True to append mutations to a journal instead of rewriting the file.
+     * @param compactionThreshold Number of journal records that triggers a compaction.
+     * @param compactionByteThreshold Journal size in bytes that triggers a compaction.
+     */
+    public Storage(String filePath, boolean isJournalMode, int compactionThreshold,
+            long compactionByteThreshold) {
+        this.filePath = filePath;
+        this.isJournalMode = isJournalMode;
+        this.compactionThreshold = compactionThreshold;
+        this.compactionByteThreshold = compactionByteThreshold;
+        this.isBinaryFormat = filePath.endsWith(BINARY_EXTENSION);
+    }
+
+    /**
+     * Sets whether the data file uses the binary format rather than the text format.
+     * By default, the binary format is used for files ending in ".bin".
+     *
+     * @param isBinaryFormat True to use the binary format.
+     */
+    public void setBinaryFormat(boolean isBinaryFormat) {
+        this.isBinaryFormat = isBinaryFormat;
+    }
+
+    /**
+     * Converts a data file between the text and binary formats, as chosen by the file extensions.
+     *
+     * @param sourcePath Path to the data file to convert.
+     * @param targetPath Path to write the converted data file to.
+     * @throws ChatterboxException If an error occurs while loading or saving tasks.
+     */
+    public static void convert(String sourcePath, String targetPath) throws ChatterboxException {
+        new Storage(targetPath).save(new Storage(sourcePath).load());
+    }
+
+    /**
+     * Sets whether large data files are split into chunks that are parsed in parallel on load.
+     *
+     * @param isParallelLoading True to load large data files in parallel.
+     */
+    public void setParallelLoading(boolean isParallelLoading) {
+        this.isParallelLoading = isParallelLoading;
+    }
+
+    /**
+     * Sets how far changes are guaranteed to have reached the disk when a save method returns.
+     * Must be set before the first change is saved.
+     *
+     * @param durability The durability mode, SYNC by default.
+     */
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    /**
+     * Sets the metrics that the number of bytes written is recorded in.
+     *
+     * @param metrics Metrics to record in.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Loads tasks from the data file.
+     * Creates the file and its parent directory if they do not exist.
+     * In journal mode, the journal is replayed on top of the loaded tasks.
+     * Tasks saved before tasks had IDs are given IDs after the highest loaded ID, in file
+     * order, so that they get the same IDs on every load until the data file is rewritten.
+     * A task whose ID is already taken by an earlier task is given a new ID after all others.
+     *
+     * @return List of tasks loaded from the file.
+     * @throws ChatterboxException If an error occurs while loading tasks.
+     */
+    public ArrayList<Task> load() throws ChatterboxException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        if (writerThread != null) {
+            drain();
+        }
+        savedLayoutSize = -1;
+        lastLoadedId = 0;
+        
+        try {
+            Path dataFilePath = Paths.get(filePath);
+            Path dataDirPath = dataFilePath.getParent();
+            
+            // Create data directory if it doesn't exist
+            if (dataDirPath != null && !Files.exists(dataDirPath)) {
+                Files.createDirectories(dataDirPath);
+            }
+
+            if (isJournalMode) {
+                recoverInterruptedCompaction();
+            }
+            
+            // Create data file if it doesn't exist
+            if (!Files.exists(dataFilePath)) {
+                Files.createFile(dataFilePath);
+            }
+            
+            if (isBinaryFormat) {
+                loadBinary(dataFilePath, tasks);
+            } else if (isParallelLoading && Files.size(dataFilePath) >= PARALLEL_LOAD_MIN_BYTES) {
+                loadInParallel(dataFilePath, tasks);
+            } else {
+                loadSequentially(dataFilePath, tasks);
+            }
+            assignMissingIds(tasks);
+
+            if (isJournalMode) {
+                replayJournal(tasks);
+            }
+            reassignDuplicateIds(tasks);
+            
+        } catch (IOException e) {
+            throw new ChatterboxException("Error loading tasks: " + e.getMessage());
+        }
+        
+        return tasks;
+    }
+    
+    private void assignMissingIds(ArrayList<Task> tasks) {
+        for (Task task : tasks) {
+            lastLoadedId = Math.max(lastLoadedId, task.getId());
+        }
+        for (Task task : tasks) {
+            assignMissingId(task);
+        }
+    }
+
+    private void assignMissingId(Task task) {
+        if (task.getId() == 0) {
+            task.setId(++lastLoadedId);
+        } else {
+            lastLoadedId = Math.max(lastLoadedId, task.getId());
+        }
+    }
+
+    private void reassignDuplicateIds(ArrayList<Task> tasks) {
+        HashSet<Integer> takenIds = new HashSet<>();
+        for (Task task : tasks) {
+            if (!takenIds.add(task.getId())) {
+                System.err.println("Warning: Task ID " + task.getId() + " is used more than once; "
+                        + "giving task '" + task.getDescription() + "' ID " + (lastLoadedId + 1));
+                task.setId(++lastLoadedId);
+            }
+        }
+    }
+
+    /**
+     * Streams lines from the data file rather than holding them all in memory.
+     */
+    private void loadSequentially(Path dataFilePath, ArrayList<Task> tasks) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(dataFilePath, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                try {
+                    Task task = parseTaskFromFile(line);
+                    if (task != null) {
+                        tasks.add(task);
+                    }
+                } catch (IllegalArgumentException e) {
+                    warnCorruptedLine(lineNumber, line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the data file into line-aligned chunks, parses them on the common fork-join pool
+     * and appends the results in file order. Warnings for corrupted lines are printed
+     * afterwards, in file order and with their line numbers in the whole file.
+     */
+    private void loadInParallel(Path dataFilePath, ArrayList<Task> tasks) throws IOException {
+        try (FileChannel channel = FileChannel.open(dataFilePath, StandardOpenOption.READ)) {
+            long[] boundaries = findChunkBoundaries(channel);
+            List<LoadedChunk> chunks;
+            try {
+                chunks = IntStream.range(0, boundaries.length - 1)
+                        .parallel()
+                        .mapToObj(i -> parseChunk(channel, boundaries[i], boundaries[i + 1]))
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int linesBefore = 0;
+            for (LoadedChunk chunk : chunks) {
+                tasks.addAll(chunk.tasks);
+                for (int i = 0; i < chunk.corruptedLines.size(); i++) {
+                    warnCorruptedLine(linesBefore + chunk.corruptedLineNumbers.get(i), chunk.corruptedLines.get(i));
+                }
+                linesBefore += chunk.lineCount;
+            }
+        }
+    }
+
+    /**
+     * Tasks and corrupted lines parsed from one chunk of the data file.
+     * Line numbers are relative to the start of the chunk.
+     */
+    private static class LoadedChunk {
+        private final ArrayList<Task> tasks = new ArrayList<>();
+        private final ArrayList<Integer> corruptedLineNumbers = new ArrayList<>();
+        private final ArrayList<String> corruptedLines = new ArrayList<>();
+        private int lineCount;
+    }
+
+    /**
+     * Returns the byte offsets at which chunks start, followed by the file size.
+     * Each offset is moved forward to just after the next line break.
+     */
+    private long[] findChunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int chunkCount = Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR;
+        long chunkSize = Math.max(1, size / chunkCount);
+
+        ArrayList<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = chunkSize;
+        while (position < size) {
+            long lineEnd = -1;
+            while (lineEnd < 0 && position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                for (int i = 0; i < read && lineEnd < 0; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lineEnd = position + i + 1;
+                    }
+                }
+                position += Math.max(read, 0);
+            }
+            if (lineEnd < 0 || lineEnd >= size) {
+                break;
+            }
+            boundaries.add(lineEnd);
+            position = lineEnd + chunkSize;
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private LoadedChunk parseChunk(FileChannel channel, long start, long end) {
+        LoadedChunk chunk = new LoadedChunk();
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            byte[] lineBytes = new byte[256];
+            while (buffer.hasRemaining()) {
+                int length = 0;
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (b == '\n') {
+                        break;
+                    }
+                    if (length == lineBytes.length) {
+                        lineBytes = Arrays.copyOf(lineBytes, length * 2);
+                    }
+                    lineBytes[length++] = b;
+                }
+                if (length > 0 && lineBytes[length - 1] == '\r') {
+                    length--;
+                }
+
+                String line = new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+                chunk.lineCount++;
+                try {
+                    Task task = parseTaskFromFile(line);
+                    if (task != null) {
+                        chunk.tasks.add(task);
+                    }
+                } catch (IllegalArgumentException e) {
+                    chunk.corruptedLineNumbers.add(chunk.lineCount);
+                    chunk.corruptedLines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk;
+    }
+
+    /**
+     * Reads tasks in the binary format: the magic bytes "CBX", a version byte and the task count,
+     * followed by one record per task. A record holds the type icon and done flag as bytes,
+     * the dates of deadlines and events as epoch minutes, and the description as a
+     * length-prefixed UTF-8 string. Reading stops at the first corrupted or truncated record.
+     */
+    private void loadBinary(Path dataFilePath, ArrayList<Task> tasks) throws IOException {
+        long fileSize = Files.size(dataFilePath);
+        if (fileSize == 0) {
+            return; // Newly created file
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dataFilePath)))) {
+            byte[] magic = new byte[BINARY_MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, BINARY_MAGIC)) {
+                throw new IOException("Not a Chatterbox binary file: " + filePath);
+            }
+            int version = in.readUnsignedByte();
+            if (version < 1 || version > BINARY_VERSION) {
+                throw new IOException("Unsupported binary format version " + version);
+            }
+
+            // A corrupted count must not make us allocate more than the file can hold
+            int count = in.readInt();
+            long remainingBytes = fileSize - BINARY_HEADER_SIZE;
+            int minRecordSize = version >= 2 ? BINARY_MIN_RECORD_SIZE : BINARY_MIN_RECORD_SIZE - Integer.BYTES;
+            if (count < 0) {
+                System.err.println("Warning: Skipping corrupted data from task 1");
+                return;
+            }
+            count = (int) Math.min(count, remainingBytes / minRecordSize);
+            tasks.ensureCapacity(tasks.size() + count);
+            for (int i = 0; i < count; i++) {
+                try {
+                    tasks.add(readBinaryTask(in, version, remainingBytes));
+                } catch (EOFException | IllegalArgumentException | DateTimeException e) {
+                    System.err.println("Warning: Skipping corrupted data from task " + (i + 1));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads one task record. Version 2 records also hold the task ID after the done flag.
+     * Descriptions longer than the given number of bytes are treated as corrupted.
+     */
+    private static Task readBinaryTask(DataInputStream in, int version, long maxLength) throws IOException {
+        byte type = in.readByte();
+        boolean isDone = in.readBoolean();
+        int id = version >= 2 ? in.readInt() : 0;
+        Task task;
+        switch (type) {
+        case 'T':
+            task = new ToDo(readBinaryString(in, maxLength), isDone);
+            break;
+        case 'D':
+            LocalDateTime by = fromEpochMinutes(in.readLong());
+            task = new Deadline(readBinaryString(in, maxLength), by, isDone);
+            break;
+        case 'E':
+            LocalDateTime from = fromEpochMinutes(in.readLong());
+            LocalDateTime to = fromEpochMinutes(in.readLong());
+            task = new Event(readBinaryString(in, maxLength), from, to, isDone);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown task type: " + type);
+        }
+        task.setId(id);
+        return task;
+    }
+
+    private static String readBinaryString(DataInputStream in, long maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IllegalArgumentException("Invalid description length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes tasks in the binary format read by {@link #loadBinary(Path, ArrayList)}.
+     * If statuses are given, they are written instead of the tasks' own completion statuses.
+     * If status offsets are given, the byte offset of each task's done flag is stored in them.
+     */
+    private static void writeBinary(DataOutputStream out, Task[] tasks, boolean[] statuses, long[] statusOffsets)
+            throws IOException {
+        out.write(BINARY_MAGIC);
+        out.writeByte(BINARY_VERSION);
+        out.writeInt(tasks.length);
+        // DataOutputStream.size() stops counting at Integer.MAX_VALUE, so track the position here
+        long position = BINARY_HEADER_SIZE;
+        for (int i = 0; i < tasks.length; i++) {
+            Task task = tasks[i];
+            if (statusOffsets != null) {
+                statusOffsets[i] = position + BINARY_STATUS_OFFSET;
+            }
+            out.writeByte(task.type.getIcon().charAt(0));
+            out.writeBoolean(statuses == null ? task.isDone() : statuses[i]);
+            out.writeInt(task.getId());
+            if (task instanceof Deadline) {
+                out.writeLong(toEpochMinutes(((Deadline) task).getBy()));
+            } else if (task instanceof Event) {
+                out.writeLong(toEpochMinutes(((Event) task).getFrom()));
+                out.writeLong(toEpochMinutes(((Event) task).getTo()));
+            }
+            byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(description.length);
+            out.write(description);
+            position += BINARY_MIN_RECORD_SIZE + description.length
+                    + (task instanceof Deadline ? Long.BYTES : task instanceof Event ? 2 * Long.BYTES : 0);
+        }
+    }
+
+    static long toEpochMinutes(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime fromEpochMinutes(long epochMinutes) {
+        return LocalDateTime.ofEpochSecond(epochMinutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static void warnCorruptedLine(int lineNumber, String line) {
+        System.err.println("Warning: Skipping corrupted line " + lineNumber + ": " + line);
+    }
+
+    /**
+     * Parses a line in the format written by {@link Task#toFileFormat()}.
+     * Fields are located by scanning for the delimiter directly and dates are parsed
+     * by position, so that loading a large file does not go through regular expressions
+     * or DateTimeFormatter for every line.
+     *
+     * @param line Line from the data file.
+     * @return The parsed task, or null if the line is blank.
+     * @throws IllegalArgumentException If the line is not a valid task.
+     */
+    private Task parseTaskFromFile(String line) {
+        if (line == null || line.isBlank()) {
+            return null;
+        }
+
+        // Minimum 3 fields: type | status | description
+        int typeEnd = line.indexOf(FIELD_DELIMITER);
+        int statusStart = typeEnd + FIELD_DELIMITER.length();
+        int statusEnd = typeEnd < 0 ? -1 : line.indexOf(FIELD_DELIMITER, statusStart);
+        if (statusEnd < 0) {
+            throw new IllegalArgumentException("Invalid format: " + line);
+        }
+        int descriptionStart = statusEnd + FIELD_DELIMITER.length();
+        int descriptionEnd = fieldEnd(line, descriptionStart);
+
+        char type = singleCharField(line, 0, typeEnd);
+        boolean isDone = singleCharField(line, statusStart, statusEnd) == '1';
+        String description = trimmedField(line, descriptionStart, descriptionEnd);
+        if (description.isEmpty()) {
+            throw new IllegalArgumentException("Missing description: " + line);
+        }
+
+        Task task;
+        int lastFieldEnd;
+        switch (type) {
+        case 'T':
+            task = new ToDo(description, isDone);
+            lastFieldEnd = descriptionEnd;
+            break;
+
+        case 'D':
+            if (descriptionEnd == line.length()) {
+                throw new IllegalArgumentException("Deadline missing 'by' field: " + line);
+            }
+            int byStart = descriptionEnd + FIELD_DELIMITER.length();
+            lastFieldEnd = fieldEnd(line, byStart);
+            LocalDateTime by = parseFileDateTime(line, byStart, lastFieldEnd);
+            task = new Deadline(description, by, isDone);
+            break;
+
+        case 'E':
+            int fromStart = descriptionEnd + FIELD_DELIMITER.length();
+            int fromEnd = descriptionEnd == line.length() ? -1 : fieldEnd(line, fromStart);
+            if (fromEnd < 0 || fromEnd == line.length()) {
+                throw new IllegalArgumentException("Event missing 'from' or 'to' field: " + line);
+            }
+            int toStart = fromEnd + FIELD_DELIMITER.length();
+            lastFieldEnd = fieldEnd(line, toStart);
+            LocalDateTime from = parseFileDateTime(line, fromStart, fromEnd);
+            LocalDateTime to = parseFileDateTime(line, toStart, lastFieldEnd);
+            task = new Event(description, from, to, isDone);
+            break;
+
+        default:
+            throw new IllegalArgumentException("Unknown task type: " + line);
+        }
+        task.setId(parseIdField(line, lastFieldEnd));
+        return task;
+    }
+
+    /**
+     * Returns the ID in the field after the given field end, or 0 if there is no such field
+     * or it is not a number, as in lines saved before tasks had IDs.
+     */
+    private static int parseIdField(String line, int previousFieldEnd) {
+        if (previousFieldEnd == line.length()) {
+            return 0;
+        }
+        int start = previousFieldEnd + FIELD_DELIMITER.length();
+        int end = fieldEnd(line, start);
+        int from = skipLeadingSpaces(line, start, end);
+        int to = skipTrailingSpaces(line, from, end);
+        if (to == from || to - from > MAX_ID_DIGITS) {
+            return 0;
+        }
+        for (int i = from; i < to; i++) {
+            if (line.charAt(i) < '0' || line.charAt(i) > '9') {
+                return 0;
+            }
+        }
+        return parseDigits(line, from, to);
+    }
+
+    private static int fieldEnd(String line, int fieldStart) {
+        int end = line.indexOf(FIELD_DELIMITER, fieldStart);
+        return end < 0 ? line.length() : end;
+    }
+
+    private static int skipLeadingSpaces(String line, int start, int end) {
+        while (start < end && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipTrailingSpaces(String line, int start, int end) {
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static String trimmedField(String line, int start, int end) {
+        int trimmedStart = skipLeadingSpaces(line, start, end);
+        return line.substring(trimmedStart, skipTrailingSpaces(line, trimmedStart, end));
+    }
+
+    private static char singleCharField(String line, int start, int end) {
+        int trimmedStart = skipLeadingSpaces(line, start, end);
+        int trimmedEnd = skipTrailingSpaces(line, trimmedStart, end);
+        if (trimmedEnd - trimmedStart != 1) {
+            throw new IllegalArgumentException("Invalid field in: " + line);
+        }
+        return line.charAt(trimmedStart);
+    }
+
+    /**
+     * Parses a date in the fixed-width "yyyy-MM-dd HHmm" file format.
+     * Like the SMART resolver of DateTimeFormatter, a day-of-month past the end of a
+     * month (up to 31) is moved back to the last day of that month.
+     */
+    private static LocalDateTime parseFileDateTime(String line, int start, int end) {
+        int from = skipLeadingSpaces(line, start, end);
+        int to = skipTrailingSpaces(line, from, end);
+        if (to - from != FILE_DATE_LENGTH || line.charAt(from + 4) != '-'
+                || line.charAt(from + 7) != '-' || line.charAt(from + 10) != ' ') {
+            throw new IllegalArgumentException("Invalid date format in: " + line);
+        }
+
+        int year = parseDigits(line, from, from + 4);
+        int month = parseDigits(line, from + 5, from + 7);
+        int day = parseDigits(line, from + 8, from + 10);
+        int hour = parseDigits(line, from + 11, from + 13);
+        int minute = parseDigits(line, from + 13, from + 15);
+        try {
+            if (day > 28 && day <= 31 && month >= 1 && month <= 12) {
+                day = Math.min(day, YearMonth.of(year, month).lengthOfMonth());
+            }
+            return LocalDateTime.of(year, month, day, hour, minute);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid date format in: " + line, e);
+        }
+    }
+
+    private static int parseDigits(String line, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Invalid date format in: " + line);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+    
+    /**
+     * Saves the given list of tasks to the data file.
+     * Creates the file and its parent directory if they do not exist.
+     * In journal mode, this synchronously compacts the journal into the data file.
+     *
+     * @param tasks List of tasks to save.
+     * @throws ChatterboxException If an error occurs while saving tasks.
+     */
+    public void save(List<Task> tasks) throws ChatterboxException {
+        if (isJournalMode) {
+            compact(tasks);
+            return;
+        }
+        if (isInBatch) {
+            hasUnsavedChanges = true;
+            return;
+        }
+        if (durability != Durability.SYNC) {
+            queueSnapshot(tasks, false);
+            savedLayoutSize = -1;
+            return;
+        }
+
+        savedLayoutSize = -1;
+        try {
+            Path dataFilePath = Paths.get(filePath);
+            Path dataDirPath = dataFilePath.getParent();
+            
+            // Ensure data directory exists
+            if (dataDirPath != null && !Files.exists(dataDirPath)) {
+                Files.createDirectories(dataDirPath);
+            }
+            
+            closeStatusChannel();
+            Task[] savedTasks = tasks.toArray(new Task[0]);
+            long[] savedStatusOffsets = new long[savedTasks.length];
+            try (FileOutputStream stream = new FileOutputStream(filePath)) {
+                BufferedOutputStream out = new BufferedOutputStream(stream);
+                if (isBinaryFormat) {
+                    writeBinary(new DataOutputStream(out), savedTasks, null, savedStatusOffsets);
+                } else {
+                    writeText(out, savedTasks, null, savedStatusOffsets);
+                }
+                out.flush();
+                stream.getChannel().force(true);
+            }
+            statusOffsets = savedStatusOffsets;
+            savedLayoutSize = savedTasks.length;
+            recordSavedFile();
+            metrics.addBytesWritten(savedFileSize);
+            
+        } catch (IOException e) {
+            throw new ChatterboxException("Error saving tasks: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Persists the addition of a task to the end of the list.
+     *
+     * @param task The task that was added.
+     * @param tasks Full list of tasks after the addition.
+     * @throws ChatterboxException If an error occurs while saving tasks.
+     */
+    public void saveAdd(Task task, List<Task> tasks) throws ChatterboxException {
+        if (!isJournalMode) {
+            save(tasks);
+            return;
+        }
+        appendJournalRecord(RECORD_ADD + " | " + task.toFileFormat(), tasks);
+    }
+
+    /**
+     * Persists a change in the completion status of the task at the specified index.
+     *
+     * @param index Index of the marked task (0-based).
+     * @param isDone New completion status of the task.
+     * @param tasks Full list of tasks after the change.
+     * @throws ChatterboxException If an error occurs while saving tasks.
+     */
+    public void saveMark(int index, boolean isDone, List<Task> tasks) throws ChatterboxException {
+        if (!isJournalMode) {
+            saveStatuses(TaskSelection.of(index), isDone, tasks);
+            return;
+        }
+        appendJournalRecord((isDone ? RECORD_MARK : RECORD_UNMARK) + " | " + index, tasks);
+    }
+
+    /**
+     * Persists a change in the completion status of all selected tasks as a single record.
+     *
+     * @param selection Indexes of the marked tasks.
+     * @param isDone New completion status of the tasks.
+     * @param tasks Full list of tasks after the change.
+     * @throws ChatterboxException If an error occurs while saving tasks.
+     */
+    public void saveMark(TaskSelection selection, boolean isDone, List<Task> tasks) throws ChatterboxException {
+        if (!isJournalMode) {
+            saveStatuses(selection, isDone, tasks);
+            return;
+        }
+        appendJournalRecord((isDone ? RECORD_MARK : RECORD_UNMARK) + " | " + selection.format(0), tasks);
+    }
+
+    /**
+     * Persists the removal of the task at the specified index.
+     *
+     * @param index Index of the removed task (0-based).
+     * @param tasks Full list of tasks after the removal.
+     * @throws ChatterboxException If an error occurs while saving tasks.
+     */
+    public void saveDelete(int index, List<Task> tasks) throws ChatterboxException {
+        if (!isJournalMode) {
+            save(tasks);
+            return;
+        }
+        appendJournalRecord(RECORD_DELETE + " | " + index, tasks);
+    }
+
+    /**
+     * Persists the removal of all selected tasks as a single record.
+     *
+     * @param selection Indexes of the removed tasks, before the removal.
+     * @param tasks Full list of tasks after the removal.
+     * @throws ChatterboxException If an error occurs while saving tasks.
+     */
+    public void saveDelete(TaskSelection selection, List<Task> tasks) throws ChatterboxException {
+        if (!isJournalMode) {
+            save(tasks);
+            return;
+        }
+        appendJournalRecord(RECORD_DELETE + " | " + selection.format(0), tasks);
+    }
+
+    /**
+     * Persists the insertion of tasks at the selected indexes, e.g. when a removal is undone.
+     * In journal mode, each task gets its own record, and the records are appended together
+     * so that no snapshot can fall between them.
+     *
+     * @param selection Indexes of the inserted tasks, after the insertion.
+     * @param insertedTasks The inserted tasks, in list order.
+     * @param tasks Full list of tasks after the insertion.
+     * @throws ChatterboxException If an error occurs while saving tasks.
+     */
+    public void saveInsert(TaskSelection selection, List<Task> insertedTasks, List<Task> tasks)
+            throws ChatterboxException {
+        if (!isJournalMode) {
+            save(tasks);
+            return;
+        }
+        ArrayList<String> records = new ArrayList<>(insertedTasks.size());
+        int inserted = 0;
+        for (int range = 0; range < selection.getRangeCount(); range++) {
+            for (int i = selection.getStart(range); i <= selection.getEnd(range); i++) {
+                records.add(RECORD_INSERT + " | " + i + " | " + insertedTasks.get(inserted++).toFileFormat());
+            }
+        }
+        appendJournalRecords(records, tasks);
+    }
+
+    /**
+     * Starts a batch of mutations that are persisted together by {@link #endBatch(List)}.
+     * Within a batch, journal records are not flushed and full saves are deferred.
+     */
+    public void beginBatch() {
+        isInBatch = true;
+    }
+
+    /**
+     * Ends the current batch, persisting all mutations made since {@link #beginBatch()} at once.
+     *
+     * @param tasks Full list of tasks at the end of the batch.
+     * @throws ChatterboxException If an error occurs while saving tasks.
+     */
+    public void endBatch(List<Task> tasks) throws ChatterboxException {
+        isInBatch = false;
+        if (hasUnsavedChanges) {
+            hasUnsavedChanges = false;
+            save(tasks);
+        }
+        checkWriteError();
+        if (durability == Durability.SYNC) {
+            try {
+                forceJournal();
+                forceStatuses();
+            } catch (IOException e) {
+                throw new ChatterboxException("Error saving tasks: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Waits until every change saved so far has been written and forced to disk,
+     * including changes still queued for the background writer.
+     *
+     * @throws ChatterboxException If an error occurred while writing any of the changes.
+     */
+    public void drain() throws ChatterboxException {
+        if (writerThread != null) {
+            CountDownLatch drained = new CountDownLatch(1);
+            writeQueue.add(drained);
+            try {
+                drained.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ChatterboxException("Interrupted while saving tasks.");
+            }
+        } else {
+            awaitPendingSnapshot();
+            try {
+                forceJournal();
+                forceStatuses();
+            } catch (IOException e) {
+                throw new ChatterboxException("Error saving tasks: " + e.getMessage());
+            }
+        }
+        checkWriteError();
+    }
+
+    /**
+     * Waits for all queued changes and any background snapshot to be written,
+     * and closes the journal, if one is open.
+     *
+     * @throws ChatterboxException If an error occurs while writing changes or closing the journal.
+     */
+    public void close() throws ChatterboxException {
+        if (writerThread != null) {
+            writeQueue.add(STOP_WRITER);
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ChatterboxException("Interrupted while saving tasks.");
+            }
+            writerThread = null;
+            writeQueue = null;
+        }
+        awaitPendingSnapshot();
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdown();
+            snapshotExecutor = null;
+        }
+        try {
+            forceJournal();
+            closeJournalWriter();
+            forceStatuses();
+            closeStatusChannel();
+        } catch (IOException e) {
+            throw new ChatterboxException("Error closing journal: " + e.getMessage());
+        }
+        checkWriteError();
+    }
+
+    /**
+     * Persists a change in completion status outside journal mode by overwriting the status
+     * byte of each selected task in the data file, which is found from the byte offsets noted
+     * during the last full save. Falls back to a full save if the data file may no longer
+     * have that layout: before the first full save after loading, after an addition, with
+     * asynchronous durability, if many tasks changed, or if the file's size or modification
+     * time shows that something else rewrote it.
+     */
+    private void saveStatuses(TaskSelection selection, boolean isDone, List<Task> tasks)
+            throws ChatterboxException {
+        boolean canPatch = durability == Durability.SYNC && savedLayoutSize == tasks.size()
+                && !hasUnsavedChanges && selection.size() <= MAX_STATUS_PATCHES && isSavedFileUnchanged();
+        if (!canPatch) {
+            save(tasks);
+            return;
+        }
+
+        try {
+            writeStatuses(selection, isDone);
+            recordSavedFile();
+            if (!isInBatch) {
+                forceStatuses();
+            }
+        } catch (IOException e) {
+            throw new ChatterboxException("Error saving tasks: " + e.getMessage());
+        }
+    }
+
+    private void recordSavedFile() throws IOException {
+        Path dataFilePath = Paths.get(filePath);
+        savedFileSize = Files.size(dataFilePath);
+        savedModifiedTime = Files.getLastModifiedTime(dataFilePath);
+    }
+
+    private boolean isSavedFileUnchanged() {
+        try {
+            Path dataFilePath = Paths.get(filePath);
+            return Files.size(dataFilePath) == savedFileSize
+                    && Files.getLastModifiedTime(dataFilePath).equals(savedModifiedTime);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void writeStatuses(TaskSelection selection, boolean isDone) throws IOException {
+        if (statusOffsets == null || selection.getLast() >= statusOffsets.length) {
+            throw new IOException("The data file no longer matches the task list.");
+        }
+        if (statusChannel == null) {
+            statusChannel = FileChannel.open(Paths.get(filePath), StandardOpenOption.WRITE);
+        }
+        byte status = (byte) (isBinaryFormat ? (isDone ? 1 : 0) : (isDone ? '1' : '0'));
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        for (int range = 0; range < selection.getRangeCount(); range++) {
+            for (int i = selection.getStart(range); i <= selection.getEnd(range); i++) {
+                buffer.put(0, status).rewind();
+                statusChannel.write(buffer, statusOffsets[i]);
+            }
+        }
+        hasUnforcedStatusWrites = true;
+        metrics.addBytesWritten(selection.size());
+    }
+
+    private void forceStatuses() throws IOException {
+        if (statusChannel != null && hasUnforcedStatusWrites) {
+            statusChannel.force(false);
+            hasUnforcedStatusWrites = false;
+        }
+    }
+
+    private void closeStatusChannel() throws IOException {
+        if (statusChannel != null) {
+            statusChannel.close();
+            statusChannel = null;
+            hasUnforcedStatusWrites = false;
+        }
+    }
+
+    private void appendJournalRecord(String record, List<Task> tasks) throws ChatterboxException {
+        appendJournalRecords(List.of(record), tasks);
+    }
+
+    private void appendJournalRecords(List<String> records, List<Task> tasks) throws ChatterboxException {
+        if (durability != Durability.SYNC) {
+            for (String record : records) {
+                queueWrite(record);
+            }
+        } else {
+            try {
+                for (String record : records) {
+                    writeJournalRecord(record);
+                }
+                if (!isInBatch) {
+                    forceJournal();
+                }
+            } catch (IOException e) {
+                throw new ChatterboxException("Error saving tasks: " + e.getMessage());
+            }
+        }
+
+        for (String record : records) {
+            journalRecordCount++;
+            journalByteCount += record.length() + System.lineSeparator().length();
+            metrics.addBytesWritten(record.length() + System.lineSeparator().length());
+        }
+        if (journalRecordCount >= compactionThreshold || journalByteCount >= compactionByteThreshold) {
+            scheduleSnapshot(tasks);
+        }
+    }
+
+    /**
+     * Rotates the journal and writes a snapshot of the given tasks on the background thread.
+     * Does nothing if the previous snapshot is still being written; the journal simply keeps
+     * growing until the next mutation after that snapshot finishes.
+     */
+    private void scheduleSnapshot(List<Task> tasks) throws ChatterboxException {
+        if (durability != Durability.SYNC) {
+            queueSnapshot(tasks, true);
+            return;
+        }
+        if (pendingSnapshot != null) {
+            if (!pendingSnapshot.isDone()) {
+                return;
+            }
+            awaitPendingSnapshot();
+        }
+
+        Task[] snapshotTasks = tasks.toArray(new Task[0]);
+        boolean[] snapshotStatuses = captureStatuses(snapshotTasks);
+        rotateJournal();
+
+        if (snapshotExecutor == null) {
+            snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "chatterbox-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pendingSnapshot = snapshotExecutor.submit(() -> {
+            writeSnapshot(snapshotTasks, snapshotStatuses);
+            return null;
+        });
+    }
+
+    /**
+     * Synchronously rotates the journal and writes a snapshot of the given tasks.
+     */
+    private void compact(List<Task> tasks) throws ChatterboxException {
+        if (durability != Durability.SYNC) {
+            queueSnapshot(tasks, true);
+            return;
+        }
+        awaitPendingSnapshot();
+        Task[] snapshotTasks = tasks.toArray(new Task[0]);
+        boolean[] snapshotStatuses = captureStatuses(snapshotTasks);
+        rotateJournal();
+        try {
+            writeSnapshot(snapshotTasks, snapshotStatuses);
+        } catch (IOException e) {
+            throw new ChatterboxException("Error saving tasks: " + e.getMessage());
+        }
+    }
+
+    private boolean[] captureStatuses(Task[] snapshotTasks) {
+        boolean[] statuses = new boolean[snapshotTasks.length];
+        for (int i = 0; i < snapshotTasks.length; i++) {
+            statuses[i] = snapshotTasks[i].isDone();
+        }
+        return statuses;
+    }
+
+    /**
+     * Moves the current journal aside so that new records go to a fresh journal
+     * while the snapshot covering the old one is being written.
+     */
+    private void rotateJournal() throws ChatterboxException {
+        try {
+            rotateJournalFile();
+            journalRecordCount = 0;
+            journalByteCount = 0;
+        } catch (IOException e) {
+            throw new ChatterboxException("Error saving tasks: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Renames the current journal to the next rotated journal. If a snapshot never ran for an
+     * earlier rotated journal, that one is kept and the new one numbered after it, so that every
+     * step is a single atomic rename and a crash can never leave records in two files at once.
+     */
+    private void rotateJournalFile() throws IOException {
+        closeJournalWriter();
+        Path journalPath = Paths.get(filePath + JOURNAL_SUFFIX);
+        if (Files.exists(journalPath)) {
+            List<Path> rotatedJournals = rotatedJournalPaths();
+            Path rotatedPath = rotatedJournals.isEmpty()
+                    ? Paths.get(filePath + PREVIOUS_JOURNAL_SUFFIX)
+                    : Paths.get(filePath + PREVIOUS_JOURNAL_SUFFIX + "." + (rotatedJournals.size() + 1));
+            Files.move(journalPath, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Returns the rotated journals in the order they were rotated: the ".journal.prev" file,
+     * followed by ".journal.prev.2", ".journal.prev.3" and so on, as long as they exist.
+     */
+    private List<Path> rotatedJournalPaths() {
+        ArrayList<Path> paths = new ArrayList<>();
+        Path path = Paths.get(filePath + PREVIOUS_JOURNAL_SUFFIX);
+        while (Files.exists(path)) {
+            paths.add(path);
+            path = Paths.get(filePath + PREVIOUS_JOURNAL_SUFFIX + "." + (paths.size() + 1));
+        }
+        return paths;
+    }
+
+    /**
+     * Deletes the rotated journals, newest first, so that a crash part-way never leaves a gap
+     * in their numbering. Only called once a ready snapshot covers all of them.
+     */
+    private void deleteRotatedJournals() throws IOException {
+        List<Path> rotatedJournals = rotatedJournalPaths();
+        for (int i = rotatedJournals.size() - 1; i >= 0; i--) {
+            Files.delete(rotatedJournals.get(i));
+        }
+    }
+
+    /**
+     * Writes the data file from the given tasks and discards the rotated journal.
+     * The new data file is first written to a temporary file, forced to disk and renamed
+     * to a "ready" file, so that an interrupted snapshot can be completed or discarded
+     * on the next load. Completion statuses are taken from the captured statuses, since
+     * tasks may be marked on the command loop while the snapshot is being written.
+     */
+    private void writeSnapshot(Task[] snapshotTasks, boolean[] snapshotStatuses) throws IOException {
+        Path dataFilePath = Paths.get(filePath);
+        Path tempPath = Paths.get(filePath + TEMP_SUFFIX);
+        Path readyPath = Paths.get(filePath + READY_SUFFIX);
+
+        Path dataDirPath = dataFilePath.getParent();
+        if (dataDirPath != null && !Files.exists(dataDirPath)) {
+            Files.createDirectories(dataDirPath);
+        }
+
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BufferedOutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            if (isBinaryFormat) {
+                writeBinary(new DataOutputStream(out), snapshotTasks, snapshotStatuses, null);
+            } else {
+                writeText(out, snapshotTasks, snapshotStatuses, null);
+            }
+            out.flush();
+            channel.force(true);
+            metrics.addBytesWritten(channel.size());
+        }
+        Files.move(tempPath, readyPath, StandardCopyOption.ATOMIC_MOVE);
+        deleteRotatedJournals();
+        Files.move(readyPath, dataFilePath, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes tasks in the text format, one line each. If statuses are given, they are written
+     * instead of the tasks' own completion statuses. If status offsets are given, the byte
+     * offset of each task's status character is stored in them.
+     */
+    private static void writeText(OutputStream out, Task[] tasks, boolean[] statuses, long[] statusOffsets)
+            throws IOException {
+        byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        long position = 0;
+        for (int i = 0; i < tasks.length; i++) {
+            String line = tasks[i].toFileFormat();
+            if (statuses != null) {
+                line = withStatus(line, statuses[i]);
+            }
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            if (statusOffsets != null) {
+                statusOffsets[i] = position + TEXT_STATUS_OFFSET;
+            }
+            out.write(bytes);
+            out.write(lineSeparator);
+            position += bytes.length + lineSeparator.length;
+        }
+    }
+
+    /**
+     * Returns the file format line with its status column set to the given status.
+     * Relies on the status being the single character after the type icon and " | ".
+     */
+    private static String withStatus(String fileFormat, boolean isDone) {
+        char status = isDone ? '1' : '0';
+        if (fileFormat.charAt(TEXT_STATUS_OFFSET) == status) {
+            return fileFormat;
+        }
+        return fileFormat.substring(0, TEXT_STATUS_OFFSET) + status + fileFormat.substring(TEXT_STATUS_OFFSET + 1);
+    }
+
+    private void awaitPendingSnapshot() throws ChatterboxException {
+        if (pendingSnapshot == null) {
+            return;
+        }
+        try {
+            pendingSnapshot.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatterboxException("Interrupted while saving tasks.");
+        } catch (ExecutionException e) {
+            throw new ChatterboxException("Error saving tasks: " + e.getCause().getMessage());
+        } finally {
+            pendingSnapshot = null;
+        }
+    }
+
+    /**
+     * Completes or discards a snapshot that was interrupted, e.g. by a crash.
+     * A "ready" file is a complete data file that already includes the rotated journal,
+     * whereas a temporary file may be incomplete.
+     */
+    private void recoverInterruptedCompaction() throws IOException {
+        Path readyPath = Paths.get(filePath + READY_SUFFIX);
+        if (Files.exists(readyPath)) {
+            deleteRotatedJournals();
+            Files.move(readyPath, Paths.get(filePath), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.deleteIfExists(Paths.get(filePath + TEMP_SUFFIX));
+    }
+
+    private void replayJournal(ArrayList<Task> tasks) throws IOException {
+        for (Path rotatedJournal : rotatedJournalPaths()) {
+            replayJournalFile(rotatedJournal, tasks);
+        }
+        Path journalPath = Paths.get(filePath + JOURNAL_SUFFIX);
+        journalRecordCount = replayJournalFile(journalPath, tasks);
+        journalByteCount = Files.exists(journalPath) ? Files.size(journalPath) : 0;
+    }
+
+    private int replayJournalFile(Path journalPath, ArrayList<Task> tasks) throws IOException {
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+
+        int recordCount = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                recordCount++;
+                try {
+                    applyJournalRecord(record, tasks);
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    System.err.println("Warning: Skipping corrupted journal record: " + record);
+                }
+            }
+        }
+        return recordCount;
+    }
+
+    private void applyJournalRecord(String record, ArrayList<Task> tasks) {
+        if (record.trim().isEmpty()) {
+            return;
+        }
+
+        String[] parts = record.split(" \\| ", 2);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Invalid journal record: " + record);
+        }
+
+        switch (parts[0]) {
+        case RECORD_ADD:
+            Task task = parseTaskFromFile(parts[1]);
+            if (task == null) {
+                throw new IllegalArgumentException("Invalid journal record: " + record);
+            }
+            assignMissingId(task);
+            tasks.add(task);
+            break;
+        case RECORD_MARK:
+        case RECORD_UNMARK:
+            TaskSelection markedTasks = parseJournalSelection(parts[1], tasks, record);
+            for (int range = 0; range < markedTasks.getRangeCount(); range++) {
+                for (int i = markedTasks.getStart(range); i <= markedTasks.getEnd(range); i++) {
+                    if (parts[0].equals(RECORD_MARK)) {
+                        tasks.get(i).markAsDone();
+                    } else {
+                        tasks.get(i).markAsNotDone();
+                    }
+                }
+            }
+            break;
+        case RECORD_DELETE:
+            parseJournalSelection(parts[1], tasks, record).removeFrom(tasks);
+            break;
+        case RECORD_INSERT:
+            String[] insertion = parts[1].split(" \\| ", 2);
+            Task insertedTask = insertion.length < 2 ? null : parseTaskFromFile(insertion[1]);
+            if (insertedTask == null) {
+                throw new IllegalArgumentException("Invalid journal record: " + record);
+            }
+            assignMissingId(insertedTask);
+            tasks.add(Integer.parseInt(insertion[0]), insertedTask);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown journal record: " + record);
+        }
+    }
+
+    /**
+     * Parses the index or indexes of a mark, unmark or delete record, checking that they are
+     * all within the list so that a corrupted record is skipped as a whole.
+     */
+    private static TaskSelection parseJournalSelection(String indexes, ArrayList<Task> tasks, String record) {
+        TaskSelection selection = TaskSelection.parse(indexes, 0);
+        if (selection == null || selection.getLast() >= tasks.size()) {
+            throw new IllegalArgumentException("Invalid journal record: " + record);
+        }
+        return selection;
+    }
+
+    private void writeJournalRecord(String record) throws IOException {
+        if (journalWriter == null) {
+            journalStream = new FileOutputStream(filePath + JOURNAL_SUFFIX, true);
+            journalWriter = new BufferedWriter(new OutputStreamWriter(journalStream, StandardCharsets.UTF_8));
+        }
+        journalWriter.write(record);
+        journalWriter.newLine();
+        hasUnforcedJournalWrites = true;
+    }
+
+    private void forceJournal() throws IOException {
+        if (journalWriter != null && hasUnforcedJournalWrites) {
+            journalWriter.flush();
+            journalStream.getChannel().force(false);
+            hasUnforcedJournalWrites = false;
+        }
+    }
+
+    private void closeJournalWriter() throws IOException {
+        if (journalWriter != null) {
+            journalWriter.close();
+            journalWriter = null;
+            journalStream = null;
+        }
+    }
+
+    /**
+     * A copy of the task list queued for the background writer, to be written as the data file.
+     * In journal mode, the journal is rotated first so that the snapshot replaces it.
+     */
+    private static class QueuedSnapshot {
+        private final Task[] tasks;
+        private final boolean[] statuses;
+        private final boolean isJournalSnapshot;
+
+        QueuedSnapshot(Task[] tasks, boolean[] statuses, boolean isJournalSnapshot) {
+            this.tasks = tasks;
+            this.statuses = statuses;
+            this.isJournalSnapshot = isJournalSnapshot;
+        }
+    }
+
+    private void queueSnapshot(List<Task> tasks, boolean isJournalSnapshot) throws ChatterboxException {
+        Task[] snapshotTasks = tasks.toArray(new Task[0]);
+        queueWrite(new QueuedSnapshot(snapshotTasks, captureStatuses(snapshotTasks), isJournalSnapshot));
+        if (isJournalSnapshot) {
+            journalRecordCount = 0;
+            journalByteCount = 0;
+        }
+    }
+
+    private void queueWrite(Object write) throws ChatterboxException {
+        checkWriteError();
+        if (writerThread == null) {
+            writeQueue = new LinkedBlockingQueue<>();
+            writerThread = new Thread(this::runWriter, "chatterbox-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+        writeQueue.add(write);
+    }
+
+    /**
+     * Applies queued writes in order on the background writer thread until it is stopped.
+     * Everything queued by the time the writer wakes up is applied together: journal records
+     * go out in one flush, and of several consecutive full saves only the last is written.
+     */
+    private void runWriter() {
+        long fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(FSYNC_INTERVAL_MILLIS);
+        long nextFsync = System.nanoTime() + fsyncIntervalNanos;
+        ArrayList<Object> writes = new ArrayList<>();
+        boolean isStopped = false;
+        while (!isStopped) {
+            try {
+                Object write = durability == Durability.PERIODIC_FSYNC
+                        ? writeQueue.poll(Math.max(0, nextFsync - System.nanoTime()), TimeUnit.NANOSECONDS)
+                        : writeQueue.take();
+                if (write != null) {
+                    writes.add(write);
+                    writeQueue.drainTo(writes);
+                }
+            } catch (InterruptedException e) {
+                // Only close() may stop the writer, so that queued changes are never dropped
+                continue;
+            }
+
+            for (int i = 0; i < writes.size(); i++) {
+                Object write = writes.get(i);
+                if (write == STOP_WRITER) {
+                    isStopped = true;
+                } else if (write instanceof CountDownLatch) {
+                    applyWrite(() -> forceJournal());
+                    ((CountDownLatch) write).countDown();
+                } else if (write instanceof String) {
+                    applyWrite(() -> writeJournalRecord((String) write));
+                } else {
+                    QueuedSnapshot snapshot = (QueuedSnapshot) write;
+                    Object nextWrite = i + 1 < writes.size() ? writes.get(i + 1) : null;
+                    boolean isSuperseded = !snapshot.isJournalSnapshot && nextWrite instanceof QueuedSnapshot
+                            && !((QueuedSnapshot) nextWrite).isJournalSnapshot;
+                    if (!isSuperseded) {
+                        applyWrite(() -> writeQueuedSnapshot(snapshot));
+                    }
+                }
+            }
+            writes.clear();
+
+            applyWrite(() -> {
+                if (journalWriter != null) {
+                    journalWriter.flush();
+                }
+            });
+            if (durability == Durability.PERIODIC_FSYNC && System.nanoTime() - nextFsync >= 0) {
+                applyWrite(() -> forceJournal());
+                nextFsync = System.nanoTime() + fsyncIntervalNanos;
+            }
+        }
+        applyWrite(() -> {
+            forceJournal();
+            closeJournalWriter();
+        });
+    }
+
+    private void writeQueuedSnapshot(QueuedSnapshot snapshot) throws IOException {
+        if (snapshot.isJournalSnapshot) {
+            rotateJournalFile();
+        }
+        writeSnapshot(snapshot.tasks, snapshot.statuses);
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs a write on the background writer, keeping the first error to report on the command loop.
+     */
+    private void applyWrite(Write write) {
+        try {
+            write.run();
+        } catch (IOException e) {
+            if (writeError == null) {
+                writeError = e;
+            }
+        }
+    }
+
+    /**
+     * Reports an error that occurred on the background writer since the last check, if any.
+     */
+    private void checkWriteError() throws ChatterboxException {
+        IOException error = writeError;
+        if (error != null) {
+            writeError = null;
+            throw new ChatterboxException("Error saving tasks: " + error.getMessage());
+        }
+    }
+}
+
+// ==================== Metrics ====================
+/**
+ * Records the latency of a hot-path phase in a fixed set of log-linear buckets, in the style
+ * of HdrHistogram: each power of two is split into 16 sub-buckets, so recorded values keep
+ * about 3% precision and recording never allocates.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final long MAX_TRACKABLE_VALUE = (1L << 40) - 1;
+
+    private final long[] counts;
+    private long totalCount;
+    private long totalValue;
+    private long maxValue;
+
+    public LatencyHistogram() {
+        counts = new long[bucketIndex(MAX_TRACKABLE_VALUE) + 1];
+    }
+
+    /**
+     * Records a single value. Values outside the trackable range are clamped to it.
+     *
+     * @param value Value to record, e.g. a latency in nanoseconds.
+     */
+    public void record(long value) {
+        long clampedValue = Math.max(0, Math.min(value, MAX_TRACKABLE_VALUE));
+        counts[bucketIndex(clampedValue)]++;
+        totalCount++;
+        totalValue += clampedValue;
+        maxValue = Math.max(maxValue, clampedValue);
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return maxValue;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) totalValue / totalCount;
+    }
+
+    /**
+     * Returns the highest value in the bucket that contains the given percentile,
+     * capped at the largest value recorded.
+     *
+     * @param percentile Percentile between 0 and 100.
+     * @return Upper bound of the values at the percentile, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long targetCount = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seenCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seenCount += counts[i];
+            if (seenCount >= targetCount) {
+                return Math.min(bucketUpperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + (subBucket - HALF_SUB_BUCKET_COUNT);
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
+
+/**
+ * Collects per-command counts, the latency of the parse, execute and persist phases of the
+ * command loop, and the number of bytes written by Storage. Recording is synchronized so that
+ * the report can be read from the periodic dump thread.
+ */
+class Metrics {
+    private static final String[] PHASE_NAMES = {"parse", "execute", "persist"};
+    private static final int PARSE = 0;
+    private static final int EXECUTE = 1;
+    private static final int PERSIST = 2;
+
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASE_NAMES.length];
+    private final TreeMap<String, long[]> commandCounts = new TreeMap<>();
+    private long errorCount;
+    private long bytesWritten;
+    private ScheduledExecutorService dumpExecutor;
+    private String dumpFilePath;
+
+    public Metrics() {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    public synchronized void recordParse(long nanos) {
+        phases[PARSE].record(nanos);
+    }
+
+    /**
+     * Records the execution of a command, counted by its kind.
+     *
+     * @param command The command that was executed.
+     * @param nanos Time taken to execute it, in nanoseconds.
+     */
+    public synchronized void recordExecute(Command command, long nanos) {
+        String commandName = command.getClass().getSimpleName();
+        long[] count = commandCounts.get(commandName);
+        if (count == null) {
+            count = new long[1];
+            commandCounts.put(commandName, count);
+        }
+        count[0]++;
+        phases[EXECUTE].record(nanos);
+    }
+
+    public synchronized void recordPersist(long nanos) {
+        phases[PERSIST].record(nanos);
+    }
+
+    public synchronized void recordError() {
+        errorCount++;
+    }
+
+    public synchronized void addBytesWritten(long byteCount) {
+        bytesWritten += byteCount;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns a human-readable report of everything recorded so far, one line per entry.
+     * Latencies are shown in microseconds.
+     *
+     * @return Lines of the report.
+     */
+    public synchronized List<String> report() {
+        ArrayList<String> lines = new ArrayList<>();
+        long commandCount = 0;
+        StringBuilder perCommand = new StringBuilder();
+        for (Map.Entry<String, long[]> entry : commandCounts.entrySet()) {
+            commandCount += entry.getValue()[0];
+            perCommand.append(perCommand.length() == 0 ? " (" : ", ")
+                    .append(entry.getKey()).append(' ').append(entry.getValue()[0]);
+        }
+        if (perCommand.length() > 0) {
+            perCommand.append(')');
+        }
+        lines.add("Commands: " + commandCount + perCommand);
+        lines.add("Errors: " + errorCount);
+        for (int i = 0; i < phases.length; i++) {
+            LatencyHistogram phase = phases[i];
+            lines.add(String.format("%-8s count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                    PHASE_NAMES[i], phase.getCount(), phase.getMean() / 1000,
+                    phase.getValueAtPercentile(50) / 1000.0, phase.getValueAtPercentile(99) / 1000.0,
+                    phase.getMax() / 1000.0));
+        }
+        lines.add("Bytes written: " + bytesWritten);
+        return lines;
+    }
+
+    /**
+     * Starts writing the report to the given file at a fixed interval on a daemon thread,
+     * replacing the file's contents each time.
+     *
+     * @param filePath Path to the file to write the report to.
+     * @param intervalMillis Time between dumps, in milliseconds.
+     */
+    public synchronized void startPeriodicDump(String filePath, long intervalMillis) {
+        stopPeriodicDump();
+        dumpFilePath = filePath;
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chatterbox-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpExecutor.scheduleAtFixedRate(() -> dumpTo(filePath), intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic dump, if one is running, after writing the report one last time.
+     */
+    public void stopPeriodicDump() {
+        ScheduledExecutorService executor;
+        String filePath;
+        synchronized (this) {
+            executor = dumpExecutor;
+            filePath = dumpFilePath;
+            dumpExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            dumpTo(filePath);
+        }
+    }
+
+    /**
+     * Writes the report to the given file, replacing its contents.
+     *
+     * @param filePath Path to the file to write the report to.
+     */
+    public void dumpTo(String filePath) {
+        try {
+            Path path = Paths.get(filePath);
+            Path dirPath = path.getParent();
+            if (dirPath != null && !Files.exists(dirPath)) {
+                Files.createDirectories(dirPath);
+            }
+            Files.write(path, report(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Error writing stats: " + e.getMessage());
+        }
+    }
+}
+
+// ==================== Command Classes ====================
+/**
+ * Represents an executable command in the Chatterbox application.
+ * Serves as the base class for all user commands.
+ */
+abstract class Command {
+    /**
+     * Executes the command using the provided task list, UI, and storage.
+     *
+     * @param tasks The task list to operate on.
+     * @param ui The user interface for displaying output.
+     * @param storage The storage handler for persisting changes.
+     * @throws ChatterboxException If an error occurs during execution.
+     */
+    public abstract void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException;
+    /**
+     * Returns whether this command will cause the application to exit.
+     *
+     * @return True if the command signals exit, false otherwise.
+     */
+    public boolean isExit() {
+        return false;
+    }
+
+    /**
+     * Returns whether this command only reads the task list, so that it may run
+     * concurrently with changes to a ConcurrentTaskList.
+     *
+     * @return True if the command never changes the task list or its storage, false otherwise.
+     */
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * Returns a command that reverses the change made by the last execution of this command,
+     * for "undo". Inverses find tasks by their IDs rather than their indexes where they can,
+     * so that they still apply after other sessions have changed the list.
+     *
+     * @return The inverse command, or null if this command made no change that can be undone.
+     */
+    public Command getInverse() {
+        return null;
+    }
+}
+
+class ExitCommand extends Command {
+    /**
+     * Waits until every saved change is on disk before saying goodbye, so that nothing
+     * still queued for the background writer is lost on exit.
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        storage.drain();
+        ui.showGoodbye();
+    }
+    
+    @Override
+    public boolean isExit() {
+        return true;
+    }
+}
+
+class ListCommand extends Command {
+    public static final int PAGE_SIZE = 100;
+    private int page;
+    private TaskView view;
+
+    public ListCommand() {
+        this(0);
+    }
+
+    /**
+     * Constructs a ListCommand that shows a single page of tasks.
+     *
+     * @param page Page number to show (1-based), or 0 to show all tasks.
+     */
+    public ListCommand(int page) {
+        this(page, TaskView.ALL);
+    }
+
+    /**
+     * Constructs a ListCommand that shows the tasks of a view, or a single page of them.
+     *
+     * @param page Page number to show (1-based), or 0 to show all shown tasks.
+     * @param view Which tasks to show and in which order.
+     */
+    public ListCommand(int page, TaskView view) {
+        this.page = page;
+        this.view = view;
+    }
+
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        if (!view.isAll()) {
+            ui.showTaskView(tasks.findTasks(view), view.describe(), page, PAGE_SIZE);
+        } else if (page > 0) {
+            ui.showTaskPage(tasks.getAllTasks(), page, PAGE_SIZE);
+        } else {
+            ui.showTaskList(tasks.getAllTasks());
+        }
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
+
+class MarkCommand extends Command {
+    private int taskIndex;
+    private boolean isDone;
+    private Task changedTask;
+    
+    public MarkCommand(int taskIndex, boolean isDone) {
+        this.taskIndex = taskIndex;
+        this.isDone = isDone;
+    }
+    
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        boolean wasDone = tasks.getTask(taskIndex).isDone();
+        tasks.markTask(taskIndex, isDone);
+        Task task = tasks.getTask(taskIndex);
+        changedTask = wasDone == isDone ? null : task;
+        ui.showTaskMarked(task, isDone);
+        storage.saveMark(taskIndex, isDone, tasks.getAllTasks());
+    }
+
+    @Override
+    public Command getInverse() {
+        return changedTask == null ? null : new SetTasksDoneCommand(List.of(changedTask), !isDone);
+    }
+}
+
+class DeleteCommand extends Command {
+    private int taskIndex;
+    private Task removedTask;
+    
+    public DeleteCommand(int taskIndex) {
+        this.taskIndex = taskIndex;
+    }
+    
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        removedTask = tasks.removeTask(taskIndex);
+        ui.showTaskRemoved(removedTask, tasks.size());
+        storage.saveDelete(taskIndex, tasks.getAllTasks());
+    }
+
+    @Override
+    public Command getInverse() {
+        return new RestoreTasksCommand(TaskSelection.of(taskIndex), List.of(removedTask));
+    }
+}
+
+/**
+ * Marks or unmarks several tasks at once, persisting them as a single change.
+ */
+class BulkMarkCommand extends Command {
+    private TaskSelection selection;
+    private boolean isDone;
+    private ArrayList<Task> changedTasks;
+
+    public BulkMarkCommand(TaskSelection selection, boolean isDone) {
+        this.selection = selection;
+        this.isDone = isDone;
+    }
+
+    /**
+     * Notes which of the selected tasks actually change, so that undoing the command
+     * leaves the tasks that already had the new status alone.
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        ArrayList<Task> tasksToChange = new ArrayList<>();
+        for (int range = 0; range < selection.getRangeCount(); range++) {
+            int end = Math.min(selection.getEnd(range), tasks.size() - 1);
+            for (int i = selection.getStart(range); i <= end; i++) {
+                Task task = tasks.getTask(i);
+                if (task.isDone() != isDone) {
+                    tasksToChange.add(task);
+                }
+            }
+        }
+        tasks.markTasks(selection, isDone);
+        changedTasks = tasksToChange;
+        ui.showTasksMarked(selection.size(), selection.format(1), isDone);
+        storage.saveMark(selection, isDone, tasks.getAllTasks());
+    }
+
+    @Override
+    public Command getInverse() {
+        return changedTasks.isEmpty() ? null : new SetTasksDoneCommand(changedTasks, !isDone);
+    }
+}
+
+/**
+ * Deletes several tasks at once, persisting them as a single change.
+ */
+class BulkDeleteCommand extends Command {
+    private TaskSelection selection;
+    private List<Task> removedTasks;
+
+    public BulkDeleteCommand(TaskSelection selection) {
+        this.selection = selection;
+    }
+
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        removedTasks = tasks.removeTasks(selection);
+        ui.showTasksRemoved(selection.size(), selection.format(1), tasks.size());
+        storage.saveDelete(selection, tasks.getAllTasks());
+    }
+
+    @Override
+    public Command getInverse() {
+        return new RestoreTasksCommand(selection, removedTasks);
+    }
+}
+
+class AddTodoCommand extends Command {
+    private String description;
+    private Task newTask;
+    
+    public AddTodoCommand(String description) {
+        this.description = description;
+    }
+    
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        newTask = new ToDo(description);
+        tasks.addTask(newTask);
+        ui.showTaskAdded(newTask, tasks.size());
+        storage.saveAdd(newTask, tasks.getAllTasks());
+    }
+
+    @Override
+    public Command getInverse() {
+        return new RemoveTasksCommand(List.of(newTask));
+    }
+}
+
+class AddDeadlineCommand extends Command {
+    private String description;
     private LocalDateTime by;
+    private Task newTask;
     
     public AddDeadlineCommand(String description, LocalDateTime by) {
         this.description = description;
         this.by = by;
     }
-    
-    @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
-        Task newTask = new Deadline(description, by);
-        tasks.addTask(newTask);
-        ui.showTaskAdded(newTask, tasks.size());
-        storage.save(tasks.getAllTasks());
+    
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        newTask = new Deadline(description, by);
+        tasks.addTask(newTask);
+        ui.showTaskAdded(newTask, tasks.size());
+        storage.saveAdd(newTask, tasks.getAllTasks());
+    }
+
+    @Override
+    public Command getInverse() {
+        return new RemoveTasksCommand(List.of(newTask));
+    }
+}
+
+class AddEventCommand extends Command {
+    private String description;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Task newTask;
+    
+    public AddEventCommand(String description, LocalDateTime from, LocalDateTime to) {
+        this.description = description;
+        this.from = from;
+        this.to = to;
+    }
+    
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        newTask = new Event(description, from, to);
+        tasks.addTask(newTask);
+        ui.showTaskAdded(newTask, tasks.size());
+        storage.saveAdd(newTask, tasks.getAllTasks());
+    }
+
+    @Override
+    public Command getInverse() {
+        return new RemoveTasksCommand(List.of(newTask));
+    }
+}
+
+class FindDateCommand extends Command {
+    private LocalDateTime date;
+    private LocalDateTime endDate;
+    private static final DateTimeFormatter DATE_ONLY_FORMATTER = 
+        DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    
+    public FindDateCommand(LocalDateTime date) {
+        this(date, date);
+    }
+
+    public FindDateCommand(LocalDateTime date, LocalDateTime endDate) {
+        this.date = date;
+        this.endDate = endDate;
+    }
+    
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        if (endDate.equals(date)) {
+            ArrayList<IndexedTask> foundTasks = tasks.findTasksOnDate(date);
+            ui.showTasksOnDate(foundTasks, date.format(DATE_ONLY_FORMATTER));
+        } else {
+            ArrayList<IndexedTask> foundTasks = tasks.findTasksBetweenDates(date, endDate);
+            ui.showTasksBetweenDates(foundTasks, date.format(DATE_ONLY_FORMATTER),
+                    endDate.format(DATE_ONLY_FORMATTER));
+        }
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
+
+/**
+ * Shows the pending deadlines and events that fall due within the next hours, soonest first.
+ */
+class DueCommand extends Command {
+    public static final int DEFAULT_HOURS = 24;
+    private int hours;
+
+    public DueCommand(int hours) {
+        this.hours = hours;
+    }
+
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        LocalDateTime now = LocalDateTime.now();
+        ui.showDueTasks(tasks.findPendingTasksBetween(now, now.plusHours(hours),
+                Task.TaskType.DEADLINE, Task.TaskType.EVENT), hours);
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
+
+/**
+ * Shows the pending deadlines whose due date has passed, oldest first.
+ */
+class OverdueCommand extends Command {
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        ui.showOverdueTasks(tasks.findPendingTasksBetween(LocalDateTime.MIN, LocalDateTime.now(),
+                Task.TaskType.DEADLINE));
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
+
+class StatsCommand extends Command {
+    private Metrics metrics;
+
+    public StatsCommand(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        ui.showStats(metrics.report());
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
+
+/**
+ * Removes the given tasks, found by their IDs, e.g. to undo their addition.
+ */
+class RemoveTasksCommand extends Command {
+    private List<Task> tasksToRemove;
+    private TaskSelection removedSelection;
+    private List<Task> removedTasks;
+
+    public RemoveTasksCommand(List<Task> tasksToRemove) {
+        this.tasksToRemove = tasksToRemove;
+    }
+
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        TaskSelection selection = tasks.selectByIds(tasksToRemove);
+        if (tasksToRemove.size() == 1) {
+            Task removedTask = tasks.removeTask(selection.getFirst());
+            removedTasks = List.of(removedTask);
+            ui.showTaskRemoved(removedTask, tasks.size());
+            storage.saveDelete(selection.getFirst(), tasks.getAllTasks());
+        } else {
+            removedTasks = tasks.removeTasks(selection);
+            ui.showTasksRemoved(selection.size(), selection.format(1), tasks.size());
+            storage.saveDelete(selection, tasks.getAllTasks());
+        }
+        removedSelection = selection;
+    }
+
+    @Override
+    public Command getInverse() {
+        return new RestoreTasksCommand(removedSelection, removedTasks);
+    }
+}
+
+/**
+ * Puts removed tasks back at the indexes they had, e.g. to undo their removal.
+ */
+class RestoreTasksCommand extends Command {
+    private TaskSelection selection;
+    private List<Task> restoredTasks;
+
+    /**
+     * Constructs a RestoreTasksCommand.
+     *
+     * @param selection Indexes the tasks had before they were removed.
+     * @param restoredTasks The removed tasks, in list order.
+     */
+    public RestoreTasksCommand(TaskSelection selection, List<Task> restoredTasks) {
+        this.selection = selection;
+        this.restoredTasks = restoredTasks;
+    }
+
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        if (restoredTasks.size() == 1) {
+            tasks.insertTask(selection.getFirst(), restoredTasks.get(0));
+            ui.showTaskRestored(restoredTasks.get(0), tasks.size());
+        } else {
+            tasks.insertTasks(selection, restoredTasks);
+            ui.showTasksRestored(selection.size(), selection.format(1), tasks.size());
+        }
+        storage.saveInsert(selection, restoredTasks, tasks.getAllTasks());
+    }
+
+    @Override
+    public Command getInverse() {
+        return new RemoveTasksCommand(restoredTasks);
+    }
+}
+
+/**
+ * Marks the given tasks, found by their IDs, as done or not done, e.g. to undo marking them.
+ */
+class SetTasksDoneCommand extends Command {
+    private List<Task> tasksToMark;
+    private boolean isDone;
+
+    public SetTasksDoneCommand(List<Task> tasksToMark, boolean isDone) {
+        this.tasksToMark = tasksToMark;
+        this.isDone = isDone;
+    }
+
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        TaskSelection selection = tasks.selectByIds(tasksToMark);
+        if (tasksToMark.size() == 1) {
+            int index = selection.getFirst();
+            tasks.markTask(index, isDone);
+            ui.showTaskMarked(tasks.getTask(index), isDone);
+            storage.saveMark(index, isDone, tasks.getAllTasks());
+        } else {
+            tasks.markTasks(selection, isDone);
+            ui.showTasksMarked(selection.size(), selection.format(1), isDone);
+            storage.saveMark(selection, isDone, tasks.getAllTasks());
+        }
+    }
+
+    @Override
+    public Command getInverse() {
+        return new SetTasksDoneCommand(tasksToMark, !isDone);
+    }
+}
+
+/**
+ * Remembers the changes made in a session so that they can be undone and redone.
+ * Each change is kept as the command that reverses it, in a ring buffer that forgets the
+ * oldest change once it is full. Undoing a change runs its inverse and puts the inverse of
+ * that, which redoes the change, in its place, so each step costs only as much as the change
+ * itself instead of reloading or comparing the whole list.
+ */
+class UndoHistory {
+    public static final int DEFAULT_CAPACITY = 100;
+
+    private final Command[] changes;
+    private int first;
+    private int undoCount;
+    private int redoCount;
+
+    public UndoHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an UndoHistory that remembers at most the given number of changes.
+     *
+     * @param capacity Maximum number of changes to remember.
+     */
+    public UndoHistory(int capacity) {
+        this.changes = new Command[capacity];
+    }
+
+    /**
+     * Records a change, forgetting the changes that were undone before it.
+     *
+     * @param inverse Command that reverses the change.
+     */
+    public void record(Command inverse) {
+        changes[(first + undoCount) % changes.length] = inverse;
+        if (undoCount == changes.length) {
+            first = (first + 1) % changes.length;
+        } else {
+            undoCount++;
+        }
+        redoCount = 0;
     }
-}
 
-class AddEventCommand extends Command {
-    private String description;
-    private LocalDateTime from;
-    private LocalDateTime to;
-    
-    public AddEventCommand(String description, LocalDateTime from, LocalDateTime to) {
-        this.description = description;
-        this.from = from;
-        this.to = to;
+    /**
+     * Undoes the latest change that has not been undone yet.
+     *
+     * @throws ChatterboxException If there is no change to undo, or it cannot be undone.
+     */
+    public void undo(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        if (undoCount == 0) {
+            throw new ChatterboxException("There is nothing to undo.");
+        }
+        int position = (first + undoCount - 1) % changes.length;
+        ui.showUndo(false);
+        changes[position] = apply(changes[position], tasks, ui, storage);
+        undoCount--;
+        redoCount++;
     }
-    
-    @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
-        Task newTask = new Event(description, from, to);
-        tasks.addTask(newTask);
-        ui.showTaskAdded(newTask, tasks.size());
-        storage.save(tasks.getAllTasks());
+
+    /**
+     * Redoes the latest change that was undone.
+     *
+     * @throws ChatterboxException If there is no change to redo, or it cannot be redone.
+     */
+    public void redo(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        if (redoCount == 0) {
+            throw new ChatterboxException("There is nothing to redo.");
+        }
+        int position = (first + undoCount) % changes.length;
+        ui.showUndo(true);
+        changes[position] = apply(changes[position], tasks, ui, storage);
+        undoCount++;
+        redoCount--;
+    }
+
+    /**
+     * Runs the command and returns its inverse. If the command fails, e.g. because another
+     * session has removed one of its tasks, the whole history is forgotten, since the changes
+     * before it may depend on it.
+     */
+    private Command apply(Command command, TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        try {
+            command.execute(tasks, ui, storage);
+        } catch (ChatterboxException e) {
+            undoCount = 0;
+            redoCount = 0;
+            throw e;
+        }
+        return command.getInverse();
     }
 }
 
-class FindDateCommand extends Command {
-    private LocalDateTime date;
-    private static final DateTimeFormatter DATE_ONLY_FORMATTER = 
-        DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    
-    public FindDateCommand(LocalDateTime date) {
-        this.date = date;
+/**
+ * Undoes or redoes the latest change of the session.
+ */
+class UndoCommand extends Command {
+    private UndoHistory history;
+    private boolean isRedo;
+
+    public UndoCommand(UndoHistory history, boolean isRedo) {
+        this.history = history;
+        this.isRedo = isRedo;
     }
-    
+
     @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) {
-        ArrayList<Task> foundTasks = tasks.findTasksOnDate(date);
-        ui.showTasksOnDate(foundTasks, date.format(DATE_ONLY_FORMATTER));
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws ChatterboxException {
+        if (isRedo) {
+            history.redo(tasks, ui, storage);
+        } else {
+            history.undo(tasks, ui, storage);
+        }
     }
 }
 
@@ -800,210 +5673,830 @@ class FindDateCommand extends Command {
  * Handles command recognition and argument extraction.
  */
 class Parser {
-    private static final DateTimeFormatter INPUT_DATE_FORMATTER = 
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
-    private static final DateTimeFormatter DATE_ONLY_FORMATTER = 
-        DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final String[] COMMAND_WORDS = {
+        "bye", "list", "mark", "unmark", "delete", "todo", "deadline", "event", "finddate", "find", "stats",
+        "undo", "redo", "due", "overdue"
+    };
+    private static final String BY_MARKER = "/by ";
+    private static final String FROM_MARKER = "/from ";
+    private static final String TO_MARKER = "/to ";
+    private static final String PAGE_MARKER = "/page";
+    private static final String SORT_MARKER = "/sort";
+    private static final String DONE_MARKER = "/done";
+    private static final String PENDING_MARKER = "/pending";
+    private static final String TYPE_MARKER = "/type";
+    private static final String LIST_USAGE = "Please use 'list', optionally with '/page N', '/sort by-date', "
+            + "'/done' or '/pending', and '/type T|D|E'.";
+    private static final int DATE_LENGTH = "yyyy-MM-dd".length();
+    private static final int DATE_TIME_LENGTH = "yyyy-MM-dd HHmm".length();
+    private static final String INVALID_DATE_TIME_MESSAGE =
+        "Invalid date format. Please use yyyy-MM-dd HHmm (e.g., 2019-12-02 1800) " +
+        "or yyyy-MM-dd (e.g., 2019-12-02)";
+    private static final String INVALID_DATE_MESSAGE =
+        "Invalid date format. Please use yyyy-MM-dd (e.g., 2019-12-02)";
+    private Metrics metrics;
+    private UndoHistory history;
+
+    public Parser() {
+        this(new Metrics());
+    }
+
+    /**
+     * Constructs a Parser whose "stats" command reports the given metrics.
+     *
+     * @param metrics Metrics shown by the "stats" command.
+     */
+    public Parser(Metrics metrics) {
+        this(metrics, new UndoHistory());
+    }
+
+    /**
+     * Constructs a Parser whose "stats" command reports the given metrics and whose "undo"
+     * and "redo" commands step through the given history.
+     *
+     * @param metrics Metrics shown by the "stats" command.
+     * @param history History of the changes to undo and redo.
+     */
+    public Parser(Metrics metrics, UndoHistory history) {
+        this.metrics = metrics;
+        this.history = history;
+    }
     
     /**
      * Parses the full user input and returns the corresponding Command object.
+     * The input is scanned in place by index, so that apart from the command itself
+     * only the strings it keeps (such as a description) are allocated.
      *
      * @param fullCommand The complete user input string.
      * @return The Command object representing the user's command.
      * @throws ChatterboxException If the input is invalid or unrecognised.
      */
     public Command parseCommand(String fullCommand) throws ChatterboxException {
-        if (fullCommand.trim().isEmpty()) {
+        int start = skipLeadingSpaces(fullCommand, 0, fullCommand.length());
+        int end = skipTrailingSpaces(fullCommand, start, fullCommand.length());
+        if (start == end) {
             throw new ChatterboxException("Please enter a command.");
         }
         
-        String[] parts = fullCommand.trim().split(" ", 2);
-        String commandWord = parts[0].toLowerCase();
-        String arguments = parts.length > 1 ? parts[1] : "";
+        int wordEnd = fullCommand.indexOf(' ', start);
+        if (wordEnd < 0 || wordEnd > end) {
+            wordEnd = end;
+        }
+        int argumentsStart = Math.min(wordEnd + 1, end);
         
-        switch (commandWord) {
+        switch (commandWord(fullCommand, start, wordEnd)) {
         case "bye":
             return new ExitCommand();
         case "list":
-            return new ListCommand();
+            return parseListCommand(fullCommand, argumentsStart, end);
         case "mark":
-            return parseMarkCommand(arguments, true);
+            return parseMarkCommand(fullCommand, argumentsStart, end, true);
         case "unmark":
-            return parseMarkCommand(arguments, false);
+            return parseMarkCommand(fullCommand, argumentsStart, end, false);
         case "delete":
-            return parseDeleteCommand(arguments);
+            return parseDeleteCommand(fullCommand, argumentsStart, end);
         case "todo":
-            return parseTodoCommand(arguments);
+            return parseTodoCommand(fullCommand, argumentsStart, end);
         case "deadline":
-            return parseDeadlineCommand(arguments);
+            return parseDeadlineCommand(fullCommand, argumentsStart, end);
         case "event":
-            return parseEventCommand(arguments);
+            return parseEventCommand(fullCommand, argumentsStart, end);
         case "finddate":
-            return parseFindDateCommand(arguments);
+            return parseFindDateCommand(fullCommand, argumentsStart, end);
         case "find":
-            return parseFindCommand(arguments);
+            return parseFindCommand(fullCommand, argumentsStart, end);
+        case "stats":
+            return new StatsCommand(metrics);
+        case "undo":
+            return new UndoCommand(history, false);
+        case "redo":
+            return new UndoCommand(history, true);
+        case "due":
+            return parseDueCommand(fullCommand, argumentsStart, end);
+        case "overdue":
+            if (argumentsStart != end) {
+                throw new ChatterboxException("Please use 'overdue' on its own.");
+            }
+            return new OverdueCommand();
         default:
             throw new ChatterboxException(
                 "Hmm, I don't recognize that command! " +
-                "Try 'todo', 'deadline', 'event', 'list', 'find', or 'finddate'!");
+                "Try 'todo', 'deadline', 'event', 'list', 'mark', 'unmark', 'delete', 'find', 'finddate', " +
+                "'due', 'overdue', 'stats', 'undo', or 'redo'! " +
+                "'mark', 'unmark' and 'delete' take task numbers and ranges, e.g. 'delete 3,7,10-12'. " +
+                "'list' takes '/page N', '/sort by-date', '/done' or '/pending', and '/type T|D|E'.");
+        }
+
+    }
+
+    /**
+     * Returns the known command word matching the input between start and end, ignoring case,
+     * or an empty string if there is none.
+     */
+    private static String commandWord(String input, int start, int end) {
+        for (String word : COMMAND_WORDS) {
+            if (word.length() == end - start && input.regionMatches(true, start, word, 0, word.length())) {
+                return word;
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Parses the options of a list command, which may be given in any order, each at most once.
+     */
+    private Command parseListCommand(String input, int start, int end) throws ChatterboxException {
+        int page = 0;
+        boolean isSortedByDate = false;
+        TaskView.Status status = TaskView.Status.ALL;
+        Task.TaskType type = null;
+
+        int markerStart = skipLeadingSpaces(input, start, end);
+        while (markerStart < end) {
+            int markerEnd = tokenEnd(input, markerStart, end);
+            int valueStart = skipLeadingSpaces(input, markerEnd, end);
+            int valueEnd = tokenEnd(input, valueStart, end);
+            if (isToken(input, markerStart, markerEnd, PAGE_MARKER) && page == 0 && valueStart < end) {
+                page = parseNumber(input, valueStart, valueEnd, "Please provide a valid page number.");
+                if (page < 1) {
+                    throw new ChatterboxException("Please provide a valid page number.");
+                }
+                markerEnd = valueEnd;
+            } else if (isToken(input, markerStart, markerEnd, SORT_MARKER) && !isSortedByDate
+                    && isToken(input, valueStart, valueEnd, "by-date")) {
+                isSortedByDate = true;
+                markerEnd = valueEnd;
+            } else if (isToken(input, markerStart, markerEnd, DONE_MARKER) && status == TaskView.Status.ALL) {
+                status = TaskView.Status.DONE;
+            } else if (isToken(input, markerStart, markerEnd, PENDING_MARKER) && status == TaskView.Status.ALL) {
+                status = TaskView.Status.PENDING;
+            } else if (isToken(input, markerStart, markerEnd, TYPE_MARKER) && type == null && valueStart < end) {
+                type = parseTaskType(input, valueStart, valueEnd);
+                markerEnd = valueEnd;
+            } else {
+                throw new ChatterboxException(LIST_USAGE);
+            }
+            markerStart = skipLeadingSpaces(input, markerEnd, end);
+        }
+        return new ListCommand(page, new TaskView(isSortedByDate, status, type));
+    }
+
+    private static Task.TaskType parseTaskType(String input, int start, int end) throws ChatterboxException {
+        for (Task.TaskType type : Task.TaskType.values()) {
+            if (isToken(input, start, end, type.getIcon()) || isToken(input, start, end, type.name())) {
+                return type;
+            }
+        }
+        throw new ChatterboxException("Please use T, D or E (or todo, deadline or event) as the task type.");
+    }
+
+    /**
+     * Returns whether the input between start and end is the given word, ignoring case.
+     */
+    private static boolean isToken(String input, int start, int end, String word) {
+        return end - start == word.length() && input.regionMatches(true, start, word, 0, word.length());
+    }
+
+    private Command parseFindCommand(String input, int start, int end) throws ChatterboxException {
+        start = skipLeadingSpaces(input, start, end);
+        if (start == end) {
+            throw new ChatterboxException("Please specify a keyword to search for.");
+        }
+        return new FindCommand(input.substring(start, end));
+    }
+    static class FindCommand extends Command {
+        private String keyword;
+
+        public FindCommand(String keyword) {
+            this.keyword = keyword;
+        }
+
+        @Override
+        public void execute(TaskList tasks, Ui ui, Storage storage) {
+            ArrayList<IndexedTask> foundTasks = tasks.findTasksByKeyword(keyword);
+            ui.showMatchingTasks(foundTasks, keyword);
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return true;
+        }
+    }
+
+    
+    private Command parseMarkCommand(String input, int start, int end, boolean isDone)
+            throws ChatterboxException {
+        start = skipLeadingSpaces(input, start, end);
+        if (start == end) {
+            throw new ChatterboxException("Please specify which task to " + 
+                (isDone ? "mark" : "unmark") + ".");
+        }
+        if (TaskSelection.isMultiple(input, start, end)) {
+            return new BulkMarkCommand(parseSelection(input, start, end), isDone);
+        }
+        
+        int taskNum = parseNumber(input, start, end, "Please provide a valid task number.") - 1;
+        return new MarkCommand(taskNum, isDone);
+    }
+    
+    private Command parseDeleteCommand(String input, int start, int end) throws ChatterboxException {
+        start = skipLeadingSpaces(input, start, end);
+        if (start == end) {
+            throw new ChatterboxException("Please specify which task to delete.");
+        }
+        if (TaskSelection.isMultiple(input, start, end)) {
+            return new BulkDeleteCommand(parseSelection(input, start, end));
+        }
+        
+        int taskNum = parseNumber(input, start, end, "Please provide a valid task number.") - 1;
+        return new DeleteCommand(taskNum);
+    }
+    
+    private Command parseTodoCommand(String input, int start, int end) throws ChatterboxException {
+        start = skipLeadingSpaces(input, start, end);
+        if (start == end) {
+            throw new ChatterboxException("The description of a todo cannot be empty.");
+        }
+        
+        checkDescription(input, start, end);
+        return new AddTodoCommand(input.substring(start, end));
+    }
+    
+    private Command parseDeadlineCommand(String input, int start, int end) throws ChatterboxException {
+        if (skipLeadingSpaces(input, start, end) == end) {
+            throw new ChatterboxException("The description of a deadline cannot be empty.");
+        }
+        
+        int byMarker = indexOf(input, BY_MARKER, start, end);
+        if (byMarker < 0) {
+            throw new ChatterboxException("Please specify the deadline with /by");
+        }
+        
+        int descriptionStart = skipLeadingSpaces(input, start, byMarker);
+        int descriptionEnd = skipTrailingSpaces(input, descriptionStart, byMarker);
+        int byStart = skipLeadingSpaces(input, byMarker + BY_MARKER.length(), end);
+        
+        if (descriptionStart == descriptionEnd) {
+            throw new ChatterboxException("The description of a deadline cannot be empty.");
+        }
+        
+        if (byStart == end) {
+            throw new ChatterboxException("The deadline date/time cannot be empty.");
+        }
+        
+        LocalDateTime by = parseFlexibleDateTime(input, byStart, end);
+        if (by == null) {
+            throw new ChatterboxException(INVALID_DATE_TIME_MESSAGE);
+        }
+        checkDescription(input, descriptionStart, descriptionEnd);
+        return new AddDeadlineCommand(input.substring(descriptionStart, descriptionEnd), by);
+    }
+    
+    private Command parseEventCommand(String input, int start, int end) throws ChatterboxException {
+        if (skipLeadingSpaces(input, start, end) == end) {
+            throw new ChatterboxException("The description of an event cannot be empty.");
+        }
+        
+        int fromMarker = indexOf(input, FROM_MARKER, start, end);
+        if (fromMarker < 0) {
+            throw new ChatterboxException("Please specify the event time with /from and /to");
+        }
+        
+        int toMarker = indexOf(input, TO_MARKER, fromMarker + FROM_MARKER.length(), end);
+        if (toMarker < 0) {
+            throw new ChatterboxException("Please specify the event time with /from and /to");
+        }
+        
+        int descriptionStart = skipLeadingSpaces(input, start, fromMarker);
+        int descriptionEnd = skipTrailingSpaces(input, descriptionStart, fromMarker);
+        int fromStart = skipLeadingSpaces(input, fromMarker + FROM_MARKER.length(), toMarker);
+        int fromEnd = skipTrailingSpaces(input, fromStart, toMarker);
+        int toStart = skipLeadingSpaces(input, toMarker + TO_MARKER.length(), end);
+        
+        if (descriptionStart == descriptionEnd) {
+            throw new ChatterboxException("The description of an event cannot be empty.");
+        }
+        
+        if (fromStart == fromEnd || toStart == end) {
+            throw new ChatterboxException("The event time cannot be empty.");
+        }
+        
+        LocalDateTime from = parseFlexibleDateTime(input, fromStart, fromEnd);
+        LocalDateTime to = parseFlexibleDateTime(input, toStart, end);
+        if (from == null || to == null) {
+            throw new ChatterboxException(INVALID_DATE_TIME_MESSAGE);
+        }
+        
+        if (to.isBefore(from)) {
+            throw new ChatterboxException("The 'to' time must be after the 'from' time.");
+        }
+        checkDescription(input, descriptionStart, descriptionEnd);
+        
+        return new AddEventCommand(input.substring(descriptionStart, descriptionEnd), from, to);
+    }
+    
+    private Command parseDueCommand(String input, int start, int end) throws ChatterboxException {
+        start = skipLeadingSpaces(input, start, end);
+        if (start == end) {
+            return new DueCommand(DueCommand.DEFAULT_HOURS);
+        }
+        int hours = parseNumber(input, start, end, "Please use 'due' or 'due N' for the next N hours.");
+        if (hours < 1) {
+            throw new ChatterboxException("Please use 'due' or 'due N' for the next N hours.");
+        }
+        return new DueCommand(hours);
+    }
+
+    private Command parseFindDateCommand(String input, int start, int end) throws ChatterboxException {
+        start = skipLeadingSpaces(input, start, end);
+        if (start == end) {
+            throw new ChatterboxException("Please specify a date (yyyy-MM-dd).");
+        }
+
+        int dateEnd = tokenEnd(input, start, end);
+        int endDateStart = skipLeadingSpaces(input, dateEnd, end);
+        int endDateEnd = tokenEnd(input, endDateStart, end);
+        if (endDateEnd != end) {
+            throw new ChatterboxException("Please specify a date or a range of two dates (yyyy-MM-dd).");
+        }
+        
+        LocalDateTime date = parseDate(input, start, dateEnd);
+        if (date == null) {
+            throw new ChatterboxException(INVALID_DATE_MESSAGE);
+        }
+        if (endDateStart == end) {
+            return new FindDateCommand(date);
+        }
+
+        LocalDateTime endDate = parseDate(input, endDateStart, endDateEnd);
+        if (endDate == null) {
+            throw new ChatterboxException(INVALID_DATE_MESSAGE);
+        }
+        if (endDate.isBefore(date)) {
+            throw new ChatterboxException("The end date must not be before the start date.");
+        }
+        return new FindDateCommand(date, endDate);
+    }
+
+    private static TaskSelection parseSelection(String input, int start, int end) throws ChatterboxException {
+        TaskSelection selection = TaskSelection.parse(input, start, end, 1);
+        if (selection == null) {
+            throw new ChatterboxException("Please provide valid task numbers, e.g. 3,7,10-250.");
+        }
+        return selection;
+    }
+
+    /**
+     * Parses a decimal integer with an optional sign, like Integer.parseInt.
+     *
+     * @throws ChatterboxException With the given message if the input is not a valid integer.
+     */
+    private static int parseNumber(String input, int start, int end, String errorMessage)
+            throws ChatterboxException {
+        if (start == end) {
+            throw new ChatterboxException(errorMessage);
+        }
+        boolean isNegative = input.charAt(start) == '-';
+        int digitsStart = isNegative || input.charAt(start) == '+' ? start + 1 : start;
+        if (digitsStart == end) {
+            throw new ChatterboxException(errorMessage);
+        }
+        long value = 0;
+        for (int i = digitsStart; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new ChatterboxException(errorMessage);
+            }
+            value = value * 10 + (c - '0');
+            if (value > 1L + Integer.MAX_VALUE) {
+                throw new ChatterboxException(errorMessage);
+            }
+        }
+        value = isNegative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new ChatterboxException(errorMessage);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a date in the "yyyy-MM-dd" format as the start of that day.
+     *
+     * @return The parsed date, or null if the input is not a valid date.
+     */
+    private static LocalDateTime parseDate(String input, int start, int end) {
+        if (end - start != DATE_LENGTH) {
+            return null;
+        }
+        return parseDateTime(input, start, false);
+    }
+    
+    /**
+     * Parses a date in either the "yyyy-MM-dd HHmm" or the "yyyy-MM-dd" format,
+     * choosing the format by the length of the input.
+     *
+     * @return The parsed date, or null if the input is not a valid date in either format.
+     */
+    private static LocalDateTime parseFlexibleDateTime(String input, int start, int end) {
+        if (end - start == DATE_TIME_LENGTH) {
+            return parseDateTime(input, start, true);
+        } else if (end - start == DATE_LENGTH) {
+            return parseDateTime(input, start, false);
+        }
+        return null;
+    }
+
+    /**
+     * Parses a fixed-width date, and the time after it if there is one, starting at the given index.
+     * Like the SMART resolver of DateTimeFormatter, a day-of-month past the end of a
+     * month (up to 31) is moved back to the last day of that month, and 2400 is midnight
+     * at the end of the day.
+     *
+     * @return The parsed date, or null if it is not valid.
+     */
+    private static LocalDateTime parseDateTime(String input, int start, boolean hasTime) {
+        if (input.charAt(start + 4) != '-' || input.charAt(start + 7) != '-'
+                || (hasTime && input.charAt(start + 10) != ' ')) {
+            return null;
+        }
+        int year = parseDigits(input, start, start + 4);
+        int month = parseDigits(input, start + 5, start + 7);
+        int day = parseDigits(input, start + 8, start + 10);
+        int hour = hasTime ? parseDigits(input, start + 11, start + 13) : 0;
+        int minute = hasTime ? parseDigits(input, start + 13, start + 15) : 0;
+        boolean isEndOfDay = hour == 24 && minute == 0;
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || (hour > 23 && !isEndOfDay) || minute < 0 || minute > 59) {
+            return null;
+        }
+        if (day > 28) {
+            day = Math.min(day, YearMonth.of(year, month).lengthOfMonth());
+        }
+        if (isEndOfDay) {
+            return LocalDateTime.of(year, month, day, 0, 0).plusDays(1);
+        }
+        return LocalDateTime.of(year, month, day, hour, minute);
+    }
+
+    /**
+     * Returns the value of the decimal digits between start and end, or -1 if there is a non-digit.
+     */
+    private static int parseDigits(String input, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Rejects descriptions containing '|', which separates the fields of a task in the data file,
+     * so that no description can be loaded back as a status or an ID.
+     */
+    private static void checkDescription(String input, int start, int end) throws ChatterboxException {
+        if (indexOf(input, "|", start, end) >= 0) {
+            throw new ChatterboxException("Descriptions cannot contain '|', which separates fields in the data file.");
+        }
+    }
+
+    /**
+     * Returns the index of the first occurrence of the marker that lies entirely between start and end,
+     * or -1 if there is none.
+     */
+    private static int indexOf(String input, String marker, int start, int end) {
+        int index = input.indexOf(marker, start);
+        return index >= 0 && index + marker.length() <= end ? index : -1;
+    }
+
+    private static int tokenEnd(String input, int start, int end) {
+        while (start < end && input.charAt(start) > ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipLeadingSpaces(String input, int start, int end) {
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipTrailingSpaces(String input, int start, int end) {
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
+// ==================== Server ====================
+/**
+ * Serves Chatterbox sessions to many users over TCP from one JVM.
+ * Each connection runs on its own virtual thread when the runtime supports them, and on
+ * a pooled platform thread otherwise. The first line a client sends is its user name;
+ * every user has their own task list and journaled storage in the data directory, which
+ * stay loaded while at least one session of that user is connected.
+ */
+class ChatterboxServer {
+    private static final int MAX_USER_NAME_LENGTH = 32;
+
+    private final Path dataDir;
+    private final Storage.Durability durability;
+    private final Metrics metrics = new Metrics();
+    private final ConcurrentHashMap<String, UserData> users = new ConcurrentHashMap<>();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private ServerSocket serverSocket;
+    private ExecutorService sessionExecutor;
+    private Thread acceptThread;
+
+    /**
+     * The task list and storage of one user, shared by all of that user's sessions.
+     */
+    private static class UserData {
+        private final String name;
+        private TaskList tasks;
+        private Storage storage;
+        private int sessionCount;
+        private boolean isClosed;
+
+        UserData(String name) {
+            this.name = name;
         }
+    }
 
+    /**
+     * Constructs a server that keeps each user's tasks in the given directory.
+     *
+     * @param dataDir Directory for the users' data files.
+     * @param durability Durability of every user's storage.
+     */
+    public ChatterboxServer(String dataDir, Storage.Durability durability) {
+        this.dataDir = Paths.get(dataDir);
+        this.durability = durability;
     }
 
-    private Command parseFindCommand(String arguments) throws ChatterboxException {
-        if (arguments.trim().isEmpty()) {
-            throw new ChatterboxException("Please specify a keyword to search for.");
-        }
-        return new FindCommand(arguments.trim());
+    /**
+     * Starts accepting connections on the given port in the background.
+     *
+     * @param port Port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be opened.
+     */
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        sessionExecutor = newSessionExecutor();
+        acceptThread = new Thread(this::acceptConnections, "chatterbox-accept");
+        acceptThread.start();
     }
-    static class FindCommand extends Command {
-        private String keyword;
 
-        public FindCommand(String keyword) {
-            this.keyword = keyword;
-        }
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
 
-        @Override
-        public void execute(TaskList tasks, Ui ui, Storage storage) {
-            ArrayList<Task> foundTasks = tasks.findTasksByKeyword(keyword);
-            ui.showMatchingTasks(foundTasks, tasks, keyword);
-        }
+    /**
+     * Waits until the server has stopped accepting connections.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void awaitStop() throws InterruptedException {
+        acceptThread.join();
     }
 
-    
-    private Command parseMarkCommand(String arguments, boolean isDone) throws ChatterboxException {
-        if (arguments.trim().isEmpty()) {
-            throw new ChatterboxException("Please specify which task to " + 
-                (isDone ? "mark" : "unmark") + ".");
+    /**
+     * Stops accepting connections, disconnects all sessions and waits for them to end,
+     * so that every user's changes are on disk when this returns.
+     */
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // The server socket is being discarded either way
         }
-        
         try {
-            int taskNum = Integer.parseInt(arguments.trim()) - 1;
-            return new MarkCommand(taskNum, isDone);
-        } catch (NumberFormatException e) {
-            throw new ChatterboxException("Please provide a valid task number.");
+            acceptThread.join();
+            for (Socket socket : openSockets) {
+                closeQuietly(socket);
+            }
+            sessionExecutor.shutdown();
+            sessionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
-    
-    private Command parseDeleteCommand(String arguments) throws ChatterboxException {
-        if (arguments.trim().isEmpty()) {
-            throw new ChatterboxException("Please specify which task to delete.");
-        }
-        
+
+    /**
+     * Returns the metrics recorded across all sessions.
+     *
+     * @return The server's metrics.
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns an executor that runs each task on a new virtual thread, if the runtime has them.
+     * Looked up reflectively so that the application still runs on Java 17, where sessions
+     * fall back to a cached pool of daemon platform threads.
+     */
+    static ExecutorService newSessionExecutor() {
         try {
-            int taskNum = Integer.parseInt(arguments.trim()) - 1;
-            return new DeleteCommand(taskNum);
-        } catch (NumberFormatException e) {
-            throw new ChatterboxException("Please provide a valid task number.");
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "chatterbox-session");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
     }
-    
-    private Command parseTodoCommand(String arguments) throws ChatterboxException {
-        if (arguments.trim().isEmpty()) {
-            throw new ChatterboxException("The description of a todo cannot be empty.");
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                openSockets.add(socket);
+                sessionExecutor.execute(() -> runSession(socket));
+            } catch (IOException | RejectedExecutionException e) {
+                // The server socket was closed by stop()
+            }
         }
-        
-        return new AddTodoCommand(arguments.trim());
     }
-    
-    private Command parseDeadlineCommand(String arguments) throws ChatterboxException {
-        if (arguments.trim().isEmpty()) {
-            throw new ChatterboxException("The description of a deadline cannot be empty.");
-        }
-        
-        String[] parts = arguments.split("/by ", 2);
-        if (parts.length < 2) {
-            throw new ChatterboxException("Please specify the deadline with /by");
-        }
-        
-        String description = parts[0].trim();
-        String byStr = parts[1].trim();
-        
-        if (description.isEmpty()) {
-            throw new ChatterboxException("The description of a deadline cannot be empty.");
-        }
-        
-        if (byStr.isEmpty()) {
-            throw new ChatterboxException("The deadline date/time cannot be empty.");
-        }
-        
+
+    private void runSession(Socket socket) {
         try {
-            LocalDateTime by = parseFlexibleDateTime(byStr);
-            return new AddDeadlineCommand(description, by);
-        } catch (DateTimeParseException e) {
-            throw new ChatterboxException(
-                "Invalid date format. Please use yyyy-MM-dd HHmm (e.g., 2019-12-02 1800) " +
-                "or yyyy-MM-dd (e.g., 2019-12-02)");
+            Ui ui = new Ui(socket.getInputStream(), socket.getOutputStream());
+            String userName = ui.readCommand();
+            if (userName == null) {
+                return;
+            }
+            userName = userName.trim();
+            if (!isValidUserName(userName)) {
+                ui.showError("Please send your user name, made of letters, digits, '-' or '_', as the first line.");
+                ui.flush();
+                return;
+            }
+
+            UserData user = acquireUser(userName, ui);
+            try {
+                new Chatterbox(ui, user.tasks, user.storage, metrics).runSession();
+            } finally {
+                releaseUser(user);
+            }
+            ui.flush();
+        } catch (IOException e) {
+            // The client disconnected, and its session simply ends
+        } finally {
+            openSockets.remove(socket);
+            closeQuietly(socket);
         }
     }
-    
-    private Command parseEventCommand(String arguments) throws ChatterboxException {
-        if (arguments.trim().isEmpty()) {
-            throw new ChatterboxException("The description of an event cannot be empty.");
-        }
-        
-        String[] fromParts = arguments.split("/from ", 2);
-        if (fromParts.length < 2) {
-            throw new ChatterboxException("Please specify the event time with /from and /to");
-        }
-        
-        String[] toParts = fromParts[1].split("/to ", 2);
-        if (toParts.length < 2) {
-            throw new ChatterboxException("Please specify the event time with /from and /to");
-        }
-        
-        String description = fromParts[0].trim();
-        String fromStr = toParts[0].trim();
-        String toStr = toParts[1].trim();
-        
-        if (description.isEmpty()) {
-            throw new ChatterboxException("The description of an event cannot be empty.");
+
+    private static boolean isValidUserName(String userName) {
+        if (userName.isEmpty() || userName.length() > MAX_USER_NAME_LENGTH) {
+            return false;
         }
-        
-        if (fromStr.isEmpty() || toStr.isEmpty()) {
-            throw new ChatterboxException("The event time cannot be empty.");
+        for (int i = 0; i < userName.length(); i++) {
+            char c = userName.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return false;
+            }
         }
-        
-        try {
-            LocalDateTime from = parseFlexibleDateTime(fromStr);
-            LocalDateTime to = parseFlexibleDateTime(toStr);
-            
-            if (to.isBefore(from)) {
-                throw new ChatterboxException("The 'to' time must be after the 'from' time.");
+        return true;
+    }
+
+    /**
+     * Registers a session of the given user, loading the user's tasks if no other session has.
+     * A user that is being closed by its last session is waited for and then loaded afresh.
+     */
+    private UserData acquireUser(String userName, Ui ui) {
+        while (true) {
+            UserData user = users.computeIfAbsent(userName, UserData::new);
+            synchronized (user) {
+                if (user.isClosed) {
+                    continue;
+                }
+                if (user.tasks == null) {
+                    user.storage = new Storage(dataDir.resolve(userName + ".txt").toString(), true);
+                    user.storage.setDurability(durability);
+                    user.storage.setMetrics(metrics);
+                    try {
+                        user.tasks = new ConcurrentTaskList(user.storage.load());
+                    } catch (ChatterboxException e) {
+                        ui.showLoadingError(e.getMessage());
+                        user.tasks = new ConcurrentTaskList();
+                    }
+                }
+                user.sessionCount++;
+                return user;
             }
-            
-            return new AddEventCommand(description, from, to);
-        } catch (DateTimeParseException e) {
-            throw new ChatterboxException(
-                "Invalid date format. Please use yyyy-MM-dd HHmm (e.g., 2019-12-02 1800) " +
-                "or yyyy-MM-dd (e.g., 2019-12-02)");
         }
     }
-    
-    private Command parseFindDateCommand(String arguments) throws ChatterboxException {
-        if (arguments.trim().isEmpty()) {
-            throw new ChatterboxException("Please specify a date (yyyy-MM-dd).");
+
+    /**
+     * Ends a session of the given user, closing the user's storage after the last session.
+     */
+    private void releaseUser(UserData user) {
+        synchronized (user) {
+            user.sessionCount--;
+            if (user.sessionCount > 0) {
+                return;
+            }
+            user.isClosed = true;
+            try {
+                user.storage.close();
+            } catch (ChatterboxException e) {
+                System.err.println("Error closing storage of " + user.name + ": " + e.getMessage());
+            }
+            users.remove(user.name, user);
         }
-        
+    }
+
+    private static void closeQuietly(Socket socket) {
         try {
-            LocalDateTime date = parseDate(arguments.trim());
-            return new FindDateCommand(date);
-        } catch (DateTimeParseException e) {
-            throw new ChatterboxException("Invalid date format. Please use yyyy-MM-dd (e.g., 2019-12-02)");
+            socket.close();
+        } catch (IOException e) {
+            // Nothing more can be done for a socket that fails to close
         }
     }
-    
-    private LocalDateTime parseDate(String dateStr) throws DateTimeParseException {
-        return LocalDateTime.parse(dateStr + " 0000", INPUT_DATE_FORMATTER);
+}
+
+// ==================== Reminders ====================
+/**
+ * Shows reminders for pending deadlines and events as they fall due, from a daemon thread that
+ * checks once a minute, the precision of task dates. Each check reads only the tasks that fell
+ * due since the previous one from the date order of the list, and holds the lock of the list
+ * while it does, so reminders only appear while the command loop is waiting for input.
+ */
+class ReminderScheduler {
+    static final long CHECK_INTERVAL_MILLIS = 60_000;
+
+    private final TaskList tasks;
+    private final Ui ui;
+    private LocalDateTime lastCheck;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs a ReminderScheduler that reminds of the tasks falling due from the given time on.
+     *
+     * @param tasks The task list to watch.
+     * @param ui The user interface to show reminders on.
+     * @param start Date and time from which on tasks falling due are reminded of.
+     */
+    public ReminderScheduler(TaskList tasks, Ui ui, LocalDateTime start) {
+        this.tasks = tasks;
+        this.ui = ui;
+        this.lastCheck = start;
     }
-    
-    private LocalDateTime parseFlexibleDateTime(String dateTimeStr) throws DateTimeParseException {
-        // Try full date-time format first
-        try {
-            return LocalDateTime.parse(dateTimeStr, INPUT_DATE_FORMATTER);
-        } catch (DateTimeParseException e1) {
-            // Try date-only format
-            return parseDate(dateTimeStr);
+
+    /**
+     * Starts checking for tasks falling due at a fixed interval on a daemon thread.
+     *
+     * @param intervalMillis Time between checks, in milliseconds.
+     */
+    public synchronized void start(long intervalMillis) {
+        stop();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chatterbox-reminders");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> checkDue(LocalDateTime.now()), intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops checking, if started.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Shows the tasks that fell due since the previous check and before the given time, if any.
+     *
+     * @param now Date and time of this check.
+     */
+    void checkDue(LocalDateTime now) {
+        synchronized (tasks) {
+            ArrayList<IndexedTask> dueTasks = tasks.findPendingTasksBetween(lastCheck, now,
+                    Task.TaskType.DEADLINE, Task.TaskType.EVENT);
+            lastCheck = now;
+            if (!dueTasks.isEmpty()) {
+                ui.showReminders(dueTasks);
+                ui.flush();
+            }
         }
     }
 }
@@ -1014,10 +6507,18 @@ class Parser {
  * Handles initialisation, command processing loop, and program execution.
  */
 public class Chatterbox {
+    private static final long DEFAULT_BATCH_MAX_DELAY_MILLIS = 100;
+    private static final long DEFAULT_STATS_INTERVAL_SECONDS = 60;
+    private static final int DEFAULT_SERVER_PORT = 4000;
+
     private Storage storage;
     private TaskList tasks;
     private Ui ui;
     private Parser parser;
+    private Metrics metrics;
+    private UndoHistory history = new UndoHistory();
+    private long batchMaxDelayNanos;
+    private int reminderHours = DueCommand.DEFAULT_HOURS;
 
     /**
      * Constructs a Chatterbox instance, loading tasks from the specified file path.
@@ -1026,9 +6527,53 @@ public class Chatterbox {
      * @param filePath Path to the data file for storing tasks.
      */
     public Chatterbox(String filePath) {
+        this(filePath, 0);
+    }
+
+    /**
+     * Constructs a Chatterbox instance that executes all immediately available input lines
+     * as one batch and persists them together, for at most the given delay per batch.
+     * Changes are forced to disk before each batch completes.
+     * If loading fails, starts with an empty task list.
+     *
+     * @param filePath Path to the data file for storing tasks.
+     * @param batchMaxDelayMillis Maximum time a batch may run before it is persisted,
+     *     or 0 to persist after every command.
+     */
+    public Chatterbox(String filePath, long batchMaxDelayMillis) {
+        this(filePath, batchMaxDelayMillis, Storage.Durability.SYNC);
+    }
+
+    /**
+     * Constructs a Chatterbox instance that batches input as described above and persists
+     * changes with the given durability.
+     * If loading fails, starts with an empty task list.
+     *
+     * @param filePath Path to the data file for storing tasks.
+     * @param batchMaxDelayMillis Maximum time a batch may run before it is persisted,
+     *     or 0 to persist after every command.
+     * @param durability How far changes must have reached the disk before a command completes.
+     */
+    public Chatterbox(String filePath, long batchMaxDelayMillis, Storage.Durability durability) {
+        this(createStorage(filePath, durability), batchMaxDelayMillis);
+    }
+
+    /**
+     * Constructs a Chatterbox instance that loads its tasks from and saves them to the given
+     * storage, batching input as described above.
+     * If loading fails, starts with an empty task list.
+     *
+     * @param storage Storage of the task list, set up but not yet loaded.
+     * @param batchMaxDelayMillis Maximum time a batch may run before it is persisted,
+     *     or 0 to persist after every command.
+     */
+    public Chatterbox(Storage storage, long batchMaxDelayMillis) {
+        batchMaxDelayNanos = batchMaxDelayMillis * 1_000_000;
         ui = new Ui();
-        storage = new Storage(filePath);
-        parser = new Parser();
+        metrics = new Metrics();
+        this.storage = storage;
+        storage.setMetrics(metrics);
+        parser = new Parser(metrics, history);
         
         try {
             tasks = new TaskList(storage.load());
@@ -1038,37 +6583,245 @@ public class Chatterbox {
         }
     }
 
+    private static Storage createStorage(String filePath, Storage.Durability durability) {
+        Storage storage = new Storage(filePath);
+        storage.setDurability(durability);
+        return storage;
+    }
+
+    /**
+     * Constructs a Chatterbox session that runs commands from the given Ui against an already
+     * loaded task list and its storage, persisting after every command.
+     * Undo and redo only step through the changes made in this session.
+     *
+     * @param ui The user interface of the session.
+     * @param tasks The task list to operate on.
+     * @param storage The storage of the task list.
+     * @param metrics Metrics to record the commands in.
+     */
+    Chatterbox(Ui ui, TaskList tasks, Storage storage, Metrics metrics) {
+        this.ui = ui;
+        this.tasks = tasks;
+        this.storage = storage;
+        this.metrics = metrics;
+        this.parser = new Parser(metrics, history);
+    }
+
     /**
      * Runs the main command loop for the Chatterbox application.
      * Handles user input, command execution, and program termination.
      */
     public void run() {
-        ui.showWelcome();
+        ReminderScheduler reminders = new ReminderScheduler(tasks, ui, LocalDateTime.now());
+        reminders.start(ReminderScheduler.CHECK_INTERVAL_MILLIS);
+        runSession();
+        reminders.stop();
+        
+        try {
+            storage.close();
+        } catch (ChatterboxException e) {
+            ui.showError(e.getMessage());
+        }
+        metrics.stopPeriodicDump();
+        ui.flush();
+        ui.close();
+    }
+
+    /**
+     * Shows the welcome message with the tasks falling due soon, and runs commands until the
+     * user exits or the input ends, without closing the storage or the Ui.
+     * Each batch runs while holding the lock of the task list, so that sessions sharing
+     * a task list and its storage take turns. Read-only commands on a ConcurrentTaskList
+     * run without the lock, so they never wait for another session's batch.
+     * The welcome message and parse errors are shown under the same lock, which the
+     * {@link ReminderScheduler} holds while showing reminders, so that reminders never
+     * appear in the middle of other output.
+     */
+    void runSession() {
+        synchronized (tasks) {
+            LocalDateTime now = LocalDateTime.now();
+            ArrayList<IndexedTask> dueTasks = tasks.findPendingTasksBetween(now, now.plusHours(reminderHours),
+                    Task.TaskType.DEADLINE, Task.TaskType.EVENT);
+            ui.showWelcome(dueTasks, reminderHours);
+            ui.flush();
+        }
         boolean isExit = false;
         
         while (!isExit) {
-            try {
-                String fullCommand = ui.readCommand();
+            String fullCommand = ui.readCommand();
+            if (fullCommand == null) {
+                break;
+            }
+            Command command = parseCommand(fullCommand);
+            if (command == null) {
+                continue;
+            }
+            if (command.isReadOnly() && tasks instanceof ConcurrentTaskList) {
+                executeCommand(command);
+                continue;
+            }
+
+            synchronized (tasks) {
+                storage.beginBatch();
+                long batchStart = System.nanoTime();
+                isExit = executeCommand(command);
+                while (!isExit && System.nanoTime() - batchStart < batchMaxDelayNanos && ui.hasPendingInput()) {
+                    fullCommand = ui.readCommand();
+                    if (fullCommand == null) {
+                        break;
+                    }
+                    isExit = runCommand(fullCommand);
+                }
+
+                long persistStart = System.nanoTime();
+                try {
+                    storage.endBatch(tasks.getAllTasks());
+                } catch (ChatterboxException e) {
+                    metrics.recordError();
+                    ui.showError(e.getMessage());
+                    ui.flush();
+                }
+                metrics.recordPersist(System.nanoTime() - persistStart);
+            }
+        }
+    }
+
+    /**
+     * Parses and executes a single line of user input.
+     *
+     * @param fullCommand The complete user input string.
+     * @return True if the command signals exit, false otherwise.
+     */
+    private boolean runCommand(String fullCommand) {
+        Command command = parseCommand(fullCommand);
+        return command != null && executeCommand(command);
+    }
+
+    /**
+     * Parses a single line of user input, showing the error if it is not a valid command.
+     *
+     * @param fullCommand The complete user input string.
+     * @return The parsed command, or null if the input is not a valid command.
+     */
+    private Command parseCommand(String fullCommand) {
+        long parseStart = System.nanoTime();
+        try {
+            Command command = parser.parseCommand(fullCommand);
+            metrics.recordParse(System.nanoTime() - parseStart);
+            return command;
+        } catch (ChatterboxException e) {
+            metrics.recordError();
+            synchronized (tasks) {
                 ui.showLine();
-                Command command = parser.parseCommand(fullCommand);
-                command.execute(tasks, ui, storage);
-                isExit = command.isExit();
-            } catch (ChatterboxException e) {
                 ui.showError(e.getMessage());
-            } finally {
                 ui.showLine();
+                ui.flush();
             }
+            return null;
         }
-        
-        ui.close();
+    }
+
+    /**
+     * Executes a parsed command, recording the change it makes in the undo history.
+     *
+     * @param command The command to execute.
+     * @return True if the command signals exit, false otherwise.
+     */
+    private boolean executeCommand(Command command) {
+        try {
+            ui.showLine();
+            long executeStart = System.nanoTime();
+            command.execute(tasks, ui, storage);
+            metrics.recordExecute(command, System.nanoTime() - executeStart);
+            Command inverse = command.getInverse();
+            if (inverse != null) {
+                history.record(inverse);
+            }
+            return command.isExit();
+        } catch (ChatterboxException e) {
+            metrics.recordError();
+            ui.showError(e.getMessage());
+            return false;
+        } finally {
+            ui.showLine();
+            ui.flush();
+        }
+    }
+
+    /**
+     * Starts writing the metrics report to the given file at a fixed interval while running.
+     *
+     * @param filePath Path to the file to write the report to.
+     * @param intervalMillis Time between dumps, in milliseconds.
+     */
+    public void startStatsDump(String filePath, long intervalMillis) {
+        metrics.startPeriodicDump(filePath, intervalMillis);
+    }
+
+    /**
+     * Sets how many hours ahead the welcome message looks for tasks falling due.
+     *
+     * @param hours Number of hours to look ahead.
+     */
+    public void setReminderHours(int hours) {
+        reminderHours = hours;
     }
 
     /**
      * The main method to launch the Chatterbox application.
+     * Commands are batched when input is piped in rather than typed at a console.
+     * The "chatterbox.durability" system property selects sync (the default), async or
+     * periodic_fsync persistence. Setting the "chatterbox.journal" system property to true
+     * appends each change to a journal next to the data file instead of rewriting the file,
+     * and setting "chatterbox.parallelLoading" to true parses large data files in parallel.
+     * If the "chatterbox.statsFile" system property is set, the metrics report is written to
+     * that file every "chatterbox.statsIntervalSeconds" seconds (60 by default).
+     * The welcome message lists the tasks falling due in the next "chatterbox.reminderHours"
+     * hours (24 by default), and reminders are shown as tasks fall due.
+     * With "--server [port]", serves many users over TCP on localhost instead of reading
+     * commands from standard input.
      *
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments: optionally "--server" and a port.
+     * @throws Exception If the server cannot be started.
      */
-    public static void main(String[] args) {
-        new Chatterbox("./data/chatterbox.txt").run();
+    public static void main(String[] args) throws Exception {
+        Storage.Durability durability;
+        try {
+            durability = Storage.parseDurability(System.getProperty("chatterbox.durability", "sync"));
+        } catch (ChatterboxException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SERVER_PORT, durability);
+            return;
+        }
+
+        long batchMaxDelayMillis = System.console() == null ? DEFAULT_BATCH_MAX_DELAY_MILLIS : 0;
+        Storage storage = new Storage("./data/chatterbox.txt", Boolean.getBoolean("chatterbox.journal"));
+        storage.setParallelLoading(Boolean.getBoolean("chatterbox.parallelLoading"));
+        storage.setDurability(durability);
+        Chatterbox chatterbox = new Chatterbox(storage, batchMaxDelayMillis);
+        String statsFile = System.getProperty("chatterbox.statsFile");
+        if (statsFile != null) {
+            long intervalSeconds = Long.getLong("chatterbox.statsIntervalSeconds", DEFAULT_STATS_INTERVAL_SECONDS);
+            chatterbox.startStatsDump(statsFile, TimeUnit.SECONDS.toMillis(intervalSeconds));
+        }
+        chatterbox.setReminderHours(Integer.getInteger("chatterbox.reminderHours", DueCommand.DEFAULT_HOURS));
+        chatterbox.run();
+    }
+
+    private static void runServer(int port, Storage.Durability durability) throws Exception {
+        ChatterboxServer server = new ChatterboxServer("./data/users", durability);
+        server.start(port);
+        String statsFile = System.getProperty("chatterbox.statsFile");
+        if (statsFile != null) {
+            long intervalSeconds = Long.getLong("chatterbox.statsIntervalSeconds", DEFAULT_STATS_INTERVAL_SECONDS);
+            server.getMetrics().startPeriodicDump(statsFile, TimeUnit.SECONDS.toMillis(intervalSeconds));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Chatterbox is listening on port " + server.getPort());
+        server.awaitStop();
     }
 }
\ No newline at end of file
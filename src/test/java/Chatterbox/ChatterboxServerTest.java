@@ -0,0 +1,111 @@
+package Chatterbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+public class ChatterboxServerTest {
+    private static final int TODOS_PER_SESSION = 5;
+
+    @Test
+    public void serves_concurrent_sessions_of_several_users() throws Exception {
+        serveSessions(20, 4);
+    }
+
+    /**
+     * Load generator, left out of the default test run. Run it with ./gradlew loadTest.
+     */
+    @Test
+    @Tag("load")
+    public void serves_thousands_of_concurrent_sessions() throws Exception {
+        long elapsedNanos = serveSessions(2000, 200);
+        int commands = 2000 * (TODOS_PER_SESSION + 4);
+        System.out.printf("Served %d sessions, %d commands in %d ms (%.0f commands/s)%n", 2000, commands,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), commands * 1e9 / elapsedNanos);
+    }
+
+    @Test
+    public void rejects_invalid_user_name() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-server");
+        ChatterboxServer server = new ChatterboxServer(dir.toString(), Storage.Durability.SYNC);
+        server.start(0);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out.println("../secrets");
+            assertTrue(in.readLine().startsWith(" OOPS!!!"));
+            assertNull(in.readLine());
+        }
+        server.stop();
+    }
+
+    /**
+     * Runs the given number of client sessions at once, spread evenly over the given number of
+     * users, checks that every user's tasks were saved, and returns how long the sessions took.
+     */
+    private static long serveSessions(int sessionCount, int userCount) throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-server");
+        ChatterboxServer server = new ChatterboxServer(dir.toString(), Storage.Durability.PERIODIC_FSYNC);
+        server.start(0);
+
+        long start = System.nanoTime();
+        ExecutorService clients = ChatterboxServer.newSessionExecutor();
+        List<Future<String>> sessions = new ArrayList<>();
+        for (int i = 0; i < sessionCount; i++) {
+            int session = i;
+            sessions.add(clients.submit(() -> runClient(server.getPort(), session, userCount)));
+        }
+        for (Future<String> session : sessions) {
+            assertTrue(session.get(2, TimeUnit.MINUTES).contains("Bye! Hope to see you again soon!"));
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        clients.shutdown();
+        server.stop();
+
+        for (int user = 0; user < userCount; user++) {
+            List<Task> tasks = new Storage(dir.resolve("user" + user + ".txt").toString(), true).load();
+            assertEquals(sessionCount / userCount * TODOS_PER_SESSION, tasks.size());
+            assertTrue(tasks.get(0).isDone());
+        }
+        return elapsedNanos;
+    }
+
+    private static String runClient(int port, int session, int userCount) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+            out.println("user" + session % userCount);
+            for (int i = 0; i < TODOS_PER_SESSION; i++) {
+                out.println("todo task " + i + " of session " + session);
+            }
+            out.println("list /page 1");
+            out.println("find session " + session);
+            out.println("mark 1");
+            out.println("bye");
+            out.flush();
+
+            StringBuilder transcript = new StringBuilder();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                transcript.append(line).append('\n');
+            }
+            return transcript.toString();
+        }
+    }
+}
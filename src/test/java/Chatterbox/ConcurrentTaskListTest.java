@@ -0,0 +1,228 @@
+package Chatterbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentTaskListTest {
+    private static final int THREADS = 8;
+
+    @Test
+    public void behaves_like_task_list() throws Exception {
+        Random random = new Random(7);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        TaskList reference = new TaskList();
+        ConcurrentTaskList concurrent = new ConcurrentTaskList();
+        for (int i = 0; i < 6000; i++) {
+            LocalDateTime from = base.plusDays(random.nextInt(30));
+            int days = random.nextInt(5);
+            for (TaskList tasks : List.of(reference, concurrent)) {
+                switch (i % 3) {
+                case 0:
+                    tasks.addTask(new ToDo("todo " + i));
+                    break;
+                case 1:
+                    tasks.addTask(new Deadline("deadline " + i, from));
+                    break;
+                default:
+                    tasks.addTask(new Event("event " + i, from, from.plusDays(days)));
+                    break;
+                }
+            }
+            if (random.nextInt(3) == 0) {
+                int index = random.nextInt(reference.size());
+                boolean isDone = random.nextBoolean();
+                reference.markTask(index, isDone);
+                concurrent.markTask(index, isDone);
+            }
+            // Remove in bursts so that chunks empty out and merge
+            if (i % 1500 > 1000) {
+                int index = random.nextInt(reference.size());
+                assertEquals(reference.removeTask(index).toFileFormat(), concurrent.removeTask(index).toFileFormat());
+            }
+        }
+        TaskSelection selection = TaskSelection.parse("1-3,5,700-1200,2000", 1);
+        assertEquals(reference.removeTasks(selection).size(), concurrent.removeTasks(selection).size());
+
+        assertEquals(reference.size(), concurrent.size());
+        for (int i = 0; i < reference.size(); i++) {
+            assertEquals(reference.getTask(i).toFileFormat(), concurrent.getTask(i).toFileFormat());
+            assertEquals(reference.getTask(i).toFileFormat(), concurrent.getAllTasks().get(i).toFileFormat());
+        }
+        assertSameResults(reference.findTasksByKeyword("event 1"), concurrent.findTasksByKeyword("EVENT 1"));
+        assertSameResults(reference.findTasksBetweenDates(base.plusDays(5), base.plusDays(9)),
+                concurrent.findTasksBetweenDates(base.plusDays(5), base.plusDays(9)));
+        assertThrows(ChatterboxException.class, () -> concurrent.getTask(concurrent.size()));
+        assertThrows(ChatterboxException.class, () -> concurrent.removeTask(-1));
+    }
+
+    private static void assertSameResults(ArrayList<IndexedTask> expected, ArrayList<IndexedTask> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getIndex(), actual.get(i).getIndex());
+            assertEquals(expected.get(i).getTask().toFileFormat(), actual.get(i).getTask().toFileFormat());
+        }
+    }
+
+    @Test
+    public void concurrent_adds_are_not_lost() throws Exception {
+        ConcurrentTaskList tasks = new ConcurrentTaskList();
+        runConcurrently(thread -> {
+            for (int i = 0; i < 5000; i++) {
+                tasks.addTask(new ToDo(thread + ":" + i));
+            }
+        });
+
+        assertEquals(THREADS * 5000, tasks.size());
+        int[] nextPerThread = new int[THREADS];
+        for (Task task : tasks.getAllTasks()) {
+            String[] parts = task.getDescription().split(":");
+            int thread = Integer.parseInt(parts[0]);
+            // Each thread's tasks keep the order they were added in
+            assertEquals(nextPerThread[thread]++, Integer.parseInt(parts[1]));
+        }
+    }
+
+    @Test
+    public void concurrent_adds_and_removes_keep_every_task_exactly_once() throws Exception {
+        ArrayList<Task> initial = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            initial.add(new ToDo("initial " + i));
+        }
+        ConcurrentTaskList tasks = new ConcurrentTaskList(initial);
+        List<Task> added = Collections.synchronizedList(new ArrayList<>());
+        List<Task> removed = Collections.synchronizedList(new ArrayList<>());
+
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < 2000; i++) {
+                if (thread % 2 == 0) {
+                    Task task = new ToDo("added " + thread + ":" + i);
+                    tasks.addTask(task);
+                    added.add(task);
+                } else {
+                    synchronized (tasks) {
+                        removed.add(tasks.removeTask(random.nextInt(tasks.size())));
+                    }
+                }
+            }
+        });
+
+        IdentityHashMap<Task, Boolean> seen = new IdentityHashMap<>();
+        for (Task task : tasks.getAllTasks()) {
+            assertNull(seen.put(task, true), "Task appears twice: " + task);
+        }
+        for (Task task : removed) {
+            assertNull(seen.put(task, true), "Removed task is still listed or removed twice: " + task);
+        }
+        for (Task task : initial) {
+            assertTrue(seen.containsKey(task));
+        }
+        for (Task task : added) {
+            assertTrue(seen.containsKey(task));
+        }
+        assertEquals(initial.size() + added.size() - removed.size(), tasks.size());
+    }
+
+    @Test
+    public void readers_see_consistent_versions_during_writes() throws Exception {
+        ConcurrentTaskList tasks = new ConcurrentTaskList();
+        AtomicBoolean isWriting = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<Integer>> readers = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                readers.add(executor.submit(() -> {
+                    int reads = 0;
+                    while (isWriting.get() || reads == 0) {
+                        // Tasks are only ever appended in order and removed from the front,
+                        // so every version holds consecutive task numbers
+                        List<Task> version = tasks.getAllTasks();
+                        int previous = -1;
+                        for (Task task : version) {
+                            int number = Integer.parseInt(task.getDescription());
+                            assertTrue(previous < 0 || number == previous + 1);
+                            previous = number;
+                        }
+                        for (IndexedTask found : tasks.findTasksByKeyword("7")) {
+                            assertTrue(found.getTask().getDescription().contains("7"));
+                        }
+                        reads++;
+                    }
+                    return reads;
+                }));
+            }
+            for (int i = 0; i < 50000; i++) {
+                tasks.addTask(new ToDo(Integer.toString(i)));
+                if (i % 3 == 0) {
+                    tasks.removeTask(0);
+                }
+            }
+            isWriting.set(false);
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get(1, TimeUnit.MINUTES) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrent_marks_are_visible_and_not_lost() throws Exception {
+        ArrayList<Task> initial = new ArrayList<>();
+        for (int i = 0; i < THREADS * 1000; i++) {
+            initial.add(new ToDo("task " + i));
+        }
+        ConcurrentTaskList tasks = new ConcurrentTaskList(initial);
+        runConcurrently(thread -> {
+            int first = thread * 1000 + 1;
+            tasks.markTasks(TaskSelection.parse(first + "-" + (first + 999), 1), true);
+            for (int i = first - 1; i < first + 999; i += 2) {
+                tasks.markTask(i, false);
+            }
+        });
+
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(i % 2 == 1, tasks.getTask(i).isDone(), "Task " + (i + 1));
+        }
+    }
+
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    body.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package Chatterbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class MappedTaskListTest {
+
+    @Test
+    public void add_mark_remove_and_reopen() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-mapped");
+        String path = dir.resolve("tasks").toString();
+        LocalDateTime by = LocalDateTime.of(2025, 3, 1, 18, 0);
+
+        MappedTaskList list = new MappedTaskList(path);
+        list.addTask(new ToDo("read book"));
+        list.addTask(new Deadline("return book", by));
+        list.addTask(new Event("meeting", by, by.plusHours(2)));
+        list.markTask(1, true);
+        assertEquals("D | 1 | return book | 2025-03-01 1800 | 2", list.getTask(1).toFileFormat());
+
+        Task removed = list.removeTask(0);
+        assertEquals("read book", removed.getDescription());
+        assertEquals(2, list.size());
+        assertThrows(ChatterboxException.class, () -> list.getTask(2));
+        list.close();
+
+        MappedTaskList reopened = new MappedTaskList(path);
+        assertEquals(2, reopened.size());
+        assertEquals("D | 1 | return book | 2025-03-01 1800 | 2", reopened.getAllTasks().get(0).toFileFormat());
+        assertTrue(reopened.getTask(1) instanceof Event);
+        assertEquals("meeting", reopened.getTaskById(3).getDescription());
+        assertEquals(1, reopened.getIndexById(3));
+        Task added = new ToDo("write report");
+        reopened.addTask(added);
+        assertEquals(4, added.getId());
+        reopened.close();
+    }
+
+    @Test
+    public void grows_and_searches_mapped_records() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-mapped");
+        MappedTaskList list = new MappedTaskList(dir.resolve("tasks").toString());
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int i = 0; i < 5000; i++) {
+            list.addTask(i % 2 == 0 ? new ToDo("Task number " + i) : new Deadline("due " + i, base.plusDays(i)));
+        }
+
+        ArrayList<IndexedTask> found = list.findTasksByKeyword("NUMBER 4998");
+        assertEquals(1, found.size());
+        assertEquals(4998, found.get(0).getIndex());
+
+        ArrayList<IndexedTask> onDate = list.findTasksBetweenDates(base.plusDays(3), base.plusDays(5));
+        assertEquals(2, onDate.size());
+        assertEquals("due 3", onDate.get(0).getTask().getDescription());
+        assertEquals("due 5", onDate.get(1).getTask().getDescription());
+
+        list.removeTask(0);
+        assertEquals(4997, list.findTasksByKeyword("number 4998").get(0).getIndex());
+        assertEquals("due 4999", list.getTask(4998).getDescription());
+        list.close();
+    }
+
+    @Test
+    public void bulk_remove_compacts_records() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-mapped");
+        MappedTaskList list = new MappedTaskList(dir.resolve("tasks").toString());
+        for (int i = 0; i < 100; i++) {
+            list.addTask(new ToDo("task " + i, i % 3 == 0));
+        }
+
+        List<Task> removed = list.removeTasks(TaskSelection.parse("1,10-89,100", 1));
+        assertEquals(82, removed.size());
+        assertEquals("task 99", removed.get(81).getDescription());
+        assertEquals(18, list.size());
+        assertEquals("task 1", list.getTask(0).getDescription());
+        assertEquals("task 8", list.getTask(7).getDescription());
+        assertEquals("T | 0 | task 89 | 90", list.getTask(8).toFileFormat());
+        assertEquals("T | 1 | task 90 | 91", list.getTask(9).toFileFormat());
+        assertEquals("task 98", list.getTask(17).getDescription());
+        list.close();
+    }
+
+    @Test
+    public void moves_overlapping_records_across_many_chunks() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-mapped");
+        MappedTaskList list = new MappedTaskList(dir.resolve("tasks").toString());
+        ArrayList<String> reference = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            list.addTask(new ToDo("task " + i));
+            reference.add("task " + i);
+        }
+
+        list.insertTask(1, new ToDo("inserted"));
+        reference.add(1, "inserted");
+        list.removeTask(0);
+        reference.remove(0);
+        list.removeTasks(TaskSelection.parse("2-3,10-4000", 1));
+        reference.subList(9, 4000).clear();
+        reference.subList(1, 3).clear();
+
+        assertEquals(reference.size(), list.size());
+        for (int i = 0; i < reference.size(); i++) {
+            assertEquals(reference.get(i), list.getTask(i).getDescription());
+        }
+        list.close();
+    }
+}
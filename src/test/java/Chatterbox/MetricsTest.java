@@ -0,0 +1,75 @@
+package Chatterbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class MetricsTest {
+
+    @Test
+    public void histogram_percentiles_within_bucket_precision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 1e-9);
+        long p50 = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 * 1.07, "p50 was " + p50);
+        assertTrue(p99 >= 99_000 && p99 <= 100_000, "p99 was " + p99);
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void histogram_small_values_are_exact_and_large_values_clamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        histogram.record(3);
+        histogram.record(7);
+        assertEquals(3, histogram.getValueAtPercentile(50));
+        assertEquals(7, histogram.getValueAtPercentile(100));
+
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertEquals(4, histogram.getCount());
+        assertTrue(histogram.getMax() < Long.MAX_VALUE);
+    }
+
+    @Test
+    public void report_counts_commands_and_storage_bytes() throws Exception {
+        Metrics metrics = new Metrics();
+        Path dir = Files.createTempDirectory("chatterbox-metrics");
+        Path file = dir.resolve("tasks.txt");
+        Storage storage = new Storage(file.toString());
+        storage.setMetrics(metrics);
+
+        TaskList tasks = new TaskList();
+        Ui ui = new Ui();
+        Parser parser = new Parser(metrics);
+        for (String input : new String[] {"todo read book", "todo write essay", "list"}) {
+            Command command = parser.parseCommand(input);
+            metrics.recordParse(1_000);
+            command.execute(tasks, ui, storage);
+            metrics.recordExecute(command, 2_000);
+        }
+        metrics.recordPersist(5_000);
+
+        List<String> report = metrics.report();
+        assertEquals("Commands: 3 (AddTodoCommand 2, ListCommand 1)", report.get(0));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("parse    count=3")));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("persist  count=1")));
+        assertTrue(metrics.getBytesWritten() > Files.size(file));
+        assertTrue(report.contains("Bytes written: " + metrics.getBytesWritten()));
+
+        Path statsFile = dir.resolve("stats.txt");
+        metrics.dumpTo(statsFile.toString());
+        assertEquals(report, Files.readAllLines(statsFile));
+    }
+}
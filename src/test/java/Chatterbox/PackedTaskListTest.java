@@ -0,0 +1,85 @@
+package Chatterbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class PackedTaskListTest {
+
+    @Test
+    public void behaves_like_task_list() throws Exception {
+        Random random = new Random(3);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        TaskList reference = new TaskList();
+        PackedTaskList packed = new PackedTaskList();
+        for (int i = 0; i < 300; i++) {
+            Task task;
+            switch (i % 3) {
+            case 0:
+                task = new ToDo("todo " + i);
+                break;
+            case 1:
+                task = new Deadline("deadline " + i, base.plusDays(random.nextInt(30)));
+                break;
+            default:
+                LocalDateTime from = base.plusDays(random.nextInt(30));
+                task = new Event("event " + i, from, from.plusDays(random.nextInt(5)));
+                break;
+            }
+            reference.addTask(task);
+            packed.addTask(task);
+            if (random.nextInt(3) == 0) {
+                int index = random.nextInt(reference.size());
+                boolean isDone = random.nextBoolean();
+                reference.markTask(index, isDone);
+                packed.markTask(index, isDone);
+            }
+            if (random.nextInt(5) == 0) {
+                int index = random.nextInt(reference.size());
+                assertEquals(reference.removeTask(index).toFileFormat(), packed.removeTask(index).toFileFormat());
+            }
+        }
+
+        assertEquals(reference.size(), packed.size());
+        for (int i = 0; i < reference.size(); i++) {
+            assertEquals(reference.getTask(i).toFileFormat(), packed.getAllTasks().get(i).toFileFormat());
+        }
+        assertSameResults(reference.findTasksByKeyword("event 1"), packed.findTasksByKeyword("EVENT 1"));
+        assertSameResults(reference.findTasksBetweenDates(base.plusDays(5), base.plusDays(9)),
+                packed.findTasksBetweenDates(base.plusDays(5), base.plusDays(9)));
+        assertThrows(ChatterboxException.class, () -> packed.getTask(packed.size()));
+    }
+
+    private static void assertSameResults(ArrayList<IndexedTask> expected, ArrayList<IndexedTask> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getIndex(), actual.get(i).getIndex());
+            assertEquals(expected.get(i).getTask().toFileFormat(), actual.get(i).getTask().toFileFormat());
+        }
+    }
+
+    @Test
+    public void bulk_remove_matches_task_list() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        TaskList reference = new TaskList();
+        PackedTaskList packed = new PackedTaskList();
+        for (int i = 0; i < 200; i++) {
+            Task task = i % 2 == 0 ? new ToDo("todo " + i) : new Deadline("deadline " + i, base.plusDays(i));
+            reference.addTask(task);
+            packed.addTask(task);
+        }
+        TaskSelection selection = TaskSelection.parse("1-3,5,70-120,200", 1);
+        reference.markTasks(TaskSelection.parse("4,6-9,150-160", 1), true);
+        packed.markTasks(TaskSelection.parse("4,6-9,150-160", 1), true);
+
+        assertEquals(reference.removeTasks(selection).size(), packed.removeTasks(selection).size());
+        assertEquals(reference.size(), packed.size());
+        for (int i = 0; i < reference.size(); i++) {
+            assertEquals(reference.getTask(i).toFileFormat(), packed.getTask(i).toFileFormat());
+        }
+    }
+}
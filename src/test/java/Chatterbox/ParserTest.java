@@ -2,7 +2,13 @@ package Chatterbox;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
@@ -32,4 +38,141 @@ public class ParserTest {
         assertThrows(ChatterboxException.class, () -> p.parseCommand("deadline"));
         assertThrows(ChatterboxException.class, () -> p.parseCommand("event something"));
     }
+
+    @Test
+    public void parse_rejects_field_separator_in_descriptions() {
+        Parser p = new Parser();
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("todo x | 2"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("deadline x|y /by 2025-01-01"));
+        assertThrows(ChatterboxException.class,
+                () -> p.parseCommand("event x | 1 /from 2025-01-01 /to 2025-01-02"));
+    }
+
+    @Test
+    public void parse_finddate_single_date_and_range() throws Exception {
+        Parser p = new Parser();
+        assertEquals("FindDateCommand", p.parseCommand("finddate 2025-01-01").getClass().getSimpleName());
+        assertEquals("FindDateCommand",
+                p.parseCommand("finddate 2025-01-01 2025-03-31").getClass().getSimpleName());
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("finddate 2025-03-31 2025-01-01"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("finddate 2025-01-01 2025-03-31 2025-04-01"));
+    }
+
+    @Test
+    public void parse_list_with_page() throws Exception {
+        Parser p = new Parser();
+        assertEquals("ListCommand", p.parseCommand("list /page 2").getClass().getSimpleName());
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("list /page 0"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("list /page two"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("list everything"));
+    }
+
+    @Test
+    public void parse_list_views_in_any_order() throws Exception {
+        Parser p = new Parser();
+        TaskList tasks = new TaskList();
+        tasks.addTask(new Deadline("late", LocalDateTime.of(2025, 3, 1, 9, 0)));
+        tasks.addTask(new ToDo("chores"));
+        tasks.addTask(new Deadline("early", LocalDateTime.of(2025, 2, 1, 9, 0)));
+        tasks.addTask(new Event("fair", LocalDateTime.of(2025, 1, 1, 9, 0), LocalDateTime.of(2025, 1, 2, 9, 0)));
+        tasks.markTask(2, true);
+
+        assertEquals(" Here are the deadlines in your list, sorted by date:|3.[D][X] early|1.[D][ ] late",
+                show(p, tasks, "list /sort by-date /type D"));
+        assertEquals(" Here are the pending tasks in your list, sorted by date:|4.[E][ ] fair|1.[D][ ] late|2.[T][ ] chores",
+                show(p, tasks, "list /pending /sort by-date"));
+        assertEquals(" Here are the done deadlines in your list (page 1 of 1):|3.[D][X] early",
+                show(p, tasks, "list /type deadline /done /page 1"));
+        assertEquals(" Here are the done events in your list:| No matching tasks found.",
+                show(p, tasks, "list /TYPE e /done"));
+
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("list /done /pending"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("list /sort by-name"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("list /type X"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("list /type"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("list /page 1 /page 2"));
+    }
+
+    private static String show(Parser p, TaskList tasks, String input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Ui ui = new Ui(InputStream.nullInputStream(), output);
+        p.parseCommand(input).execute(tasks, ui, null);
+        ui.flush();
+        return output.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> line.startsWith(" Here") || line.startsWith(" No") || line.startsWith(" You")
+                        ? line : line.trim())
+                .map(line -> line.replaceAll(" \\((by|from): .*\\)$", ""))
+                .collect(Collectors.joining("|"));
+    }
+
+    @Test
+    public void parse_due_and_overdue() throws Exception {
+        Parser p = new Parser();
+        TaskList tasks = new TaskList();
+        LocalDateTime now = LocalDateTime.now();
+        tasks.addTask(new Deadline("soon", now.plusHours(2)));
+        tasks.addTask(new Deadline("later", now.plusHours(30)));
+        tasks.addTask(new Deadline("missed", now.minusHours(1)));
+        tasks.addTask(new Event("talk", now.plusHours(1), now.plusHours(2)));
+        tasks.addTask(new Deadline("handed in", now.minusHours(5)));
+        tasks.markTask(4, true);
+
+        assertEquals(" Here are the tasks due in the next 24 hours:|4.[E][ ] talk|1.[D][ ] soon",
+                show(p, tasks, "due"));
+        assertEquals(" Here are the tasks due in the next 48 hours:|4.[E][ ] talk|1.[D][ ] soon|2.[D][ ] later",
+                show(p, tasks, "due 48"));
+        assertEquals(" Here are your overdue tasks:|3.[D][ ] missed", show(p, tasks, "overdue"));
+        tasks.markTask(2, true);
+        assertEquals(" You have no overdue tasks.", show(p, tasks, "overdue"));
+
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("due 0"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("due soon"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("overdue 3"));
+    }
+
+    @Test
+    public void parse_stats() throws Exception {
+        Parser p = new Parser();
+        assertEquals("StatsCommand", p.parseCommand("stats").getClass().getSimpleName());
+    }
+
+    @Test
+    public void parse_dates_and_descriptions_in_place() throws Exception {
+        Parser p = new Parser();
+        Storage storage = new Storage(Files.createTempFile("chatterbox-parser", ".txt").toString());
+        TaskList tasks = new TaskList();
+        Ui ui = new Ui(InputStream.nullInputStream(), OutputStream.nullOutputStream());
+
+        p.parseCommand("  DEADLINE  return book  /by   2019-12-02 1800 ").execute(tasks, ui, storage);
+        p.parseCommand("deadline pay rent /by 2019-02-30").execute(tasks, ui, storage);
+        p.parseCommand("deadline party /by 2019-12-31 2400").execute(tasks, ui, storage);
+        p.parseCommand("event talk /from 2019-12-02 /to 2019-12-02 1600").execute(tasks, ui, storage);
+
+        assertEquals("D | 0 | return book | 2019-12-02 1800 | 1", tasks.getTask(0).toFileFormat());
+        assertEquals("D | 0 | pay rent | 2019-02-28 0000 | 2", tasks.getTask(1).toFileFormat());
+        assertEquals("D | 0 | party | 2020-01-01 0000 | 3", tasks.getTask(2).toFileFormat());
+        assertEquals("E | 0 | talk | 2019-12-02 0000 | 2019-12-02 1600 | 4", tasks.getTask(3).toFileFormat());
+        assertEquals(4, tasks.size());
+
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("deadline x /by 2019-13-01"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("deadline x /by 2019-12-02 1860"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("deadline x /by 2019-12-02  1800"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("deadline x /by"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("event x /from 2019-12-02 /to 2019-12-01"));
+        assertEquals("MarkCommand", p.parseCommand("mark +0003").getClass().getSimpleName());
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("mark 99999999999"));
+    }
+
+    @Test
+    public void parse_bulk_mark_and_delete() throws Exception {
+        Parser p = new Parser();
+        assertEquals("BulkDeleteCommand", p.parseCommand("delete 3,7,10-250").getClass().getSimpleName());
+        assertEquals("BulkMarkCommand", p.parseCommand("mark 1-500").getClass().getSimpleName());
+        assertEquals("BulkMarkCommand", p.parseCommand("unmark 2, 4").getClass().getSimpleName());
+        assertEquals("MarkCommand", p.parseCommand("mark -1").getClass().getSimpleName());
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("delete 5-3"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("delete 0-3"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("delete 1,,2"));
+        assertThrows(ChatterboxException.class, () -> p.parseCommand("mark 1-"));
+    }
 }
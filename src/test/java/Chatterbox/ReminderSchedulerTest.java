@@ -0,0 +1,114 @@
+package Chatterbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+public class ReminderSchedulerTest {
+
+    @Test
+    public void reminds_of_each_pending_task_once_as_it_falls_due() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 6, 1, 9, 0);
+        TaskList tasks = new TaskList();
+        tasks.addTask(new Deadline("report", base.plusMinutes(30)));
+        tasks.addTask(new Event("meeting", base.plusMinutes(90), base.plusMinutes(150)));
+        tasks.addTask(new Deadline("already done", base.plusMinutes(45)));
+        tasks.addTask(new Deadline("missed", base.minusMinutes(10)));
+        tasks.addTask(new ToDo("chores"));
+        tasks.markTask(2, true);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Ui ui = new Ui(new ByteArrayInputStream(new byte[0]), output);
+        ReminderScheduler reminders = new ReminderScheduler(tasks, ui, base);
+
+        reminders.checkDue(base.plusMinutes(20));
+        assertEquals("", shown(output));
+
+        reminders.checkDue(base.plusMinutes(60));
+        String shown = shown(output);
+        assertTrue(shown.contains(" Reminder: this task is due now:"));
+        assertTrue(shown.contains("1.[D][ ] report"));
+        assertFalse(shown.contains("already done"));
+        assertFalse(shown.contains("missed"));
+
+        // Tasks added later are reminded of too, and nothing is reminded of twice
+        tasks.addTask(new Deadline("call", base.plusMinutes(100)));
+        reminders.checkDue(base.plusMinutes(120));
+        shown = shown(output);
+        assertTrue(shown.contains(" Reminder: these tasks are due now:"));
+        assertTrue(shown.indexOf("2.[E][ ] meeting") < shown.indexOf("6.[D][ ] call"));
+        assertFalse(shown.contains("report"));
+
+        reminders.checkDue(base.plusDays(1));
+        assertEquals("", shown(output));
+    }
+
+    @Test
+    public void welcome_lists_tasks_falling_due_soon() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-reminders");
+        Storage storage = new Storage(dir.resolve("tasks.txt").toString());
+        TaskList tasks = new TaskList();
+        LocalDateTime now = LocalDateTime.now();
+        tasks.addTask(new Deadline("soon", now.plusHours(3)));
+        tasks.addTask(new Deadline("next week", now.plusDays(7)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Ui ui = new Ui(new ByteArrayInputStream("bye\n".getBytes(StandardCharsets.UTF_8)), output);
+
+        new Chatterbox(ui, tasks, storage, new Metrics()).runSession();
+        storage.close();
+
+        String shown = output.toString(StandardCharsets.UTF_8);
+        assertTrue(shown.contains(" Coming up in the next 24 hours:"));
+        assertTrue(shown.contains("1.[D][ ] soon"));
+        assertFalse(shown.contains("next week"));
+    }
+
+    @Test
+    public void parse_errors_wait_for_reminders_being_shown() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-reminders");
+        Storage storage = new Storage(dir.resolve("tasks.txt").toString());
+        TaskList tasks = new TaskList();
+        PipedOutputStream input = new PipedOutputStream();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Ui ui = new Ui(new PipedInputStream(input), output);
+        Thread session = new Thread(() -> new Chatterbox(ui, tasks, storage, new Metrics()).runSession());
+        session.start();
+        awaitShown(output, "Hello");
+        output.reset();
+
+        // The reminder thread holds the lock of the task list while it shows reminders
+        synchronized (tasks) {
+            input.write("blah\n".getBytes(StandardCharsets.UTF_8));
+            input.flush();
+            Thread.sleep(200);
+            assertEquals("", output.toString(StandardCharsets.UTF_8));
+        }
+        awaitShown(output, "don't recognize");
+        input.write("bye\n".getBytes(StandardCharsets.UTF_8));
+        input.close();
+        session.join(10_000);
+        storage.close();
+    }
+
+    private static void awaitShown(ByteArrayOutputStream output, String text) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!output.toString(StandardCharsets.UTF_8).contains(text)) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for: " + text);
+            Thread.sleep(10);
+        }
+    }
+
+    private static String shown(ByteArrayOutputStream output) {
+        String shown = output.toString(StandardCharsets.UTF_8);
+        output.reset();
+        return shown;
+    }
+}
@@ -2,10 +2,14 @@ package Chatterbox;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
@@ -34,4 +38,552 @@ public class StorageTest {
         // Cleanup
         Files.deleteIfExists(tmp);
     }
+
+    @Test
+    public void journal_replays_mutations_on_top_of_data_file() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-journal");
+        String path = dir.resolve("tasks.txt").toString();
+
+        Storage storage = new Storage(path, true);
+        ArrayList<Task> tasks = storage.load();
+        tasks.add(new ToDo("a"));
+        storage.saveAdd(tasks.get(0), tasks);
+        tasks.add(new ToDo("b"));
+        storage.saveAdd(tasks.get(1), tasks);
+        tasks.get(1).markAsDone();
+        storage.saveMark(1, true, tasks);
+        tasks.remove(0);
+        storage.saveDelete(0, tasks);
+        storage.close();
+
+        // Data file itself is untouched until compaction
+        assertEquals(0, Files.readAllLines(Path.of(path)).size());
+
+        ArrayList<Task> loaded = new Storage(path, true).load();
+        assertEquals(1, loaded.size());
+        assertEquals("T | 1 | b | 2", loaded.get(0).toFileFormat());
+    }
+
+    @Test
+    public void legacy_tasks_keep_the_same_ids_across_loads() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-ids");
+        Path data = dir.resolve("tasks.txt");
+        Files.write(data, List.of("T | 0 | a", "T | 0 | b | 7", "T | 1 | c"));
+
+        Storage storage = new Storage(data.toString(), true);
+        TaskList tasks = new TaskList(storage.load());
+        assertEquals(1, tasks.getIndexById(7));
+        assertEquals(8, tasks.getTask(0).getId());
+        ToDo added = new ToDo("d");
+        tasks.addTask(added);
+        storage.saveAdd(added, tasks.getAllTasks());
+        storage.close();
+
+        TaskList reloaded = new TaskList(new Storage(data.toString(), true).load());
+        assertEquals(4, reloaded.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.getTask(i).getId(), reloaded.getTask(i).getId());
+        }
+        assertEquals("c", reloaded.getTaskById(9).getDescription());
+        assertEquals(10, added.getId());
+        assertSame(reloaded.getTask(3), reloaded.getTaskById(10));
+    }
+
+    @Test
+    public void load_gives_duplicate_ids_new_ids() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-ids");
+        Path data = dir.resolve("tasks.txt");
+        // "todo x | 2" saved by an older version, whose ID field was then loaded as 2
+        Files.write(data, List.of("T | 0 | x | 2 | 1", "T | 0 | y | 2"));
+        Files.writeString(Path.of(data + ".journal"), "A | T | 0 | z | 2" + System.lineSeparator());
+
+        TaskList tasks = new TaskList(new Storage(data.toString(), true).load());
+        assertEquals(3, tasks.size());
+        assertEquals(2, tasks.getTask(0).getId());
+        assertEquals(3, tasks.getTask(1).getId());
+        assertEquals(4, tasks.getTask(2).getId());
+        assertEquals(1, tasks.getIndexById(3));
+        assertEquals("z", tasks.getTaskById(4).getDescription());
+    }
+
+    @Test
+    public void journal_compacts_into_data_file_after_threshold() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-journal");
+        String path = dir.resolve("tasks.txt").toString();
+
+        Storage storage = new Storage(path, true, 2);
+        ArrayList<Task> tasks = storage.load();
+        tasks.add(new ToDo("a"));
+        storage.saveAdd(tasks.get(0), tasks);
+        tasks.add(new ToDo("b"));
+        storage.saveAdd(tasks.get(1), tasks);
+        storage.close();
+
+        assertEquals(2, Files.readAllLines(Path.of(path)).size());
+        assertFalse(Files.exists(Path.of(path + ".journal")));
+        assertEquals(2, new Storage(path, true).load().size());
+    }
+
+    @Test
+    public void journal_skips_torn_trailing_record() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-journal");
+        Path data = dir.resolve("tasks.txt");
+        Files.writeString(data, "T | 0 | a" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".journal"), "M | 0" + System.lineSeparator() + "A | D | 0 | b | 20");
+
+        ArrayList<Task> loaded = new Storage(data.toString(), true).load();
+        assertEquals(1, loaded.size());
+        assertEquals("T | 1 | a | 1", loaded.get(0).toFileFormat());
+    }
+
+    @Test
+    public void background_snapshot_keeps_later_records_in_new_journal() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-snapshot");
+        String path = dir.resolve("tasks.txt").toString();
+
+        Storage storage = new Storage(path, true, 1000, 1);
+        ArrayList<Task> tasks = storage.load();
+        for (int i = 0; i < 50; i++) {
+            tasks.add(new ToDo("task " + i));
+            storage.saveAdd(tasks.get(i), tasks);
+        }
+        storage.close();
+
+        assertFalse(Files.exists(Path.of(path + ".journal.prev")));
+        assertFalse(Files.exists(Path.of(path + ".ready")));
+        ArrayList<Task> loaded = new Storage(path, true).load();
+        assertEquals(50, loaded.size());
+        assertEquals("T | 0 | task 49 | 50", loaded.get(49).toFileFormat());
+    }
+
+    @Test
+    public void load_recovers_when_killed_while_writing_snapshot() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-snapshot");
+        Path data = dir.resolve("tasks.txt");
+        Files.writeString(data, "T | 0 | a" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".journal.prev"), "A | T | 0 | b" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".journal"), "M | 1" + System.lineSeparator());
+        // Partially written snapshot, as if the process died mid-write
+        Files.writeString(Path.of(data + ".tmp"), "T | 0 | a" + System.lineSeparator() + "T | 0");
+
+        ArrayList<Task> loaded = new Storage(data.toString(), true).load();
+        assertEquals(2, loaded.size());
+        assertEquals("T | 1 | b | 2", loaded.get(1).toFileFormat());
+        assertFalse(Files.exists(Path.of(data + ".tmp")));
+    }
+
+    @Test
+    public void load_recovers_when_killed_after_snapshot_was_ready() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-snapshot");
+        Path data = dir.resolve("tasks.txt");
+        Files.writeString(data, "T | 0 | a" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".journal.prev"), "A | T | 0 | b" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".journal"), "M | 1" + System.lineSeparator());
+        // Complete snapshot already covering the rotated journal, but not yet renamed into place
+        Files.writeString(Path.of(data + ".ready"),
+                "T | 0 | a" + System.lineSeparator() + "T | 0 | b" + System.lineSeparator());
+
+        ArrayList<Task> loaded = new Storage(data.toString(), true).load();
+        assertEquals(2, loaded.size());
+        assertEquals("T | 1 | b | 2", loaded.get(1).toFileFormat());
+        assertFalse(Files.exists(Path.of(data + ".journal.prev")));
+        assertFalse(Files.exists(Path.of(data + ".ready")));
+    }
+
+    @Test
+    public void load_replays_every_rotated_journal_once_after_crash_before_snapshot() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-snapshot");
+        Path data = dir.resolve("tasks.txt");
+        Files.writeString(data, "T | 0 | a | 1" + System.lineSeparator());
+        // Two rotations whose snapshots never finished, as if the process died twice
+        Files.writeString(Path.of(data + ".journal.prev"), "A | T | 0 | b | 2" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".journal.prev.2"), "A | T | 0 | c | 3" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".journal"), "M | 2" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".tmp"), "T | 0 | a | 1" + System.lineSeparator() + "T | 0");
+
+        Storage storage = new Storage(data.toString(), true, 1);
+        storage.setDurability(Storage.Durability.SYNC);
+        ArrayList<Task> loaded = storage.load();
+        assertEquals(List.of("T | 0 | a | 1", "T | 0 | b | 2", "T | 1 | c | 3"), describe(loaded));
+
+        // The next rotation keeps the leftover journals and numbers the new one after them
+        loaded.add(new ToDo("d"));
+        storage.saveAdd(loaded.get(3), loaded);
+        storage.close();
+        assertFalse(Files.exists(Path.of(data + ".journal.prev")));
+        assertFalse(Files.exists(Path.of(data + ".journal.prev.2")));
+        assertFalse(Files.exists(Path.of(data + ".journal.prev.3")));
+        assertEquals(List.of("T | 0 | a | 1", "T | 0 | b | 2", "T | 1 | c | 3", "T | 0 | d | 4"),
+                describe(new Storage(data.toString(), true).load()));
+    }
+
+    @Test
+    public void load_discards_every_rotated_journal_covered_by_ready_snapshot() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-snapshot");
+        Path data = dir.resolve("tasks.txt");
+        Files.writeString(data, "T | 0 | a | 1" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".journal.prev"), "A | T | 0 | b | 2" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".journal.prev.2"), "A | T | 0 | c | 3" + System.lineSeparator());
+        Files.writeString(Path.of(data + ".ready"), "T | 0 | a | 1" + System.lineSeparator()
+                + "T | 0 | b | 2" + System.lineSeparator() + "T | 0 | c | 3" + System.lineSeparator());
+
+        ArrayList<Task> loaded = new Storage(data.toString(), true).load();
+        assertEquals(List.of("T | 0 | a | 1", "T | 0 | b | 2", "T | 0 | c | 3"), describe(loaded));
+        assertFalse(Files.exists(Path.of(data + ".journal.prev")));
+        assertFalse(Files.exists(Path.of(data + ".journal.prev.2")));
+    }
+
+    @Test
+    public void batch_defers_full_save_until_end() throws Exception {
+        Path tmp = Files.createTempFile("chatterbox-test", ".txt");
+        String path = tmp.toString();
+
+        Storage storage = new Storage(path);
+        ArrayList<Task> tasks = new ArrayList<>();
+        storage.beginBatch();
+        tasks.add(new ToDo("a"));
+        storage.saveAdd(tasks.get(0), tasks);
+        tasks.add(new ToDo("b"));
+        storage.saveAdd(tasks.get(1), tasks);
+        assertEquals(0, Files.readAllLines(tmp).size());
+
+        storage.endBatch(tasks);
+        assertEquals(2, Files.readAllLines(tmp).size());
+
+        Files.deleteIfExists(tmp);
+    }
+
+    @Test
+    public void load_parses_fields_and_skips_corrupted_lines() throws Exception {
+        Path tmp = Files.createTempFile("chatterbox-test", ".txt");
+        Files.write(tmp, java.util.List.of(
+                "T | 1 | read book",
+                "D | 0 | return book | 2023-06-06 1800",
+                "E | 0 | project meeting | 2023-08-06 1400 | 2023-08-06 1600",
+                "",
+                "D | 0 | leap | 2023-02-30 0900",
+                "D | 0 | bad hour | 2023-06-06 2460",
+                "D | 0 | no date",
+                "E | 0 | half event | 2023-08-06 1400",
+                "X | 0 | unknown",
+                "T | 0"));
+
+        ArrayList<Task> loaded = new Storage(tmp.toString()).load();
+        assertEquals(4, loaded.size());
+        assertEquals("T | 1 | read book | 1", loaded.get(0).toFileFormat());
+        assertEquals(LocalDateTime.of(2023, 6, 6, 18, 0), ((Deadline) loaded.get(1)).getBy());
+        assertEquals(LocalDateTime.of(2023, 8, 6, 16, 0), ((Event) loaded.get(2)).getTo());
+        // Same as DateTimeFormatter's default resolver: day 30 of February becomes the 28th
+        assertEquals(LocalDateTime.of(2023, 2, 28, 9, 0), ((Deadline) loaded.get(3)).getBy());
+
+        Files.deleteIfExists(tmp);
+    }
+
+    @Test
+    public void parallel_load_matches_sequential_load() throws Exception {
+        Path tmp = Files.createTempFile("chatterbox-test", ".txt");
+        ArrayList<String> lines = new ArrayList<>();
+        for (int i = 0; i < 40000; i++) {
+            if (i == 12345 || i == 39999) {
+                lines.add("D | 0 | corrupted " + i);
+            } else if (i % 2 == 0) {
+                lines.add("T | 0 | task " + i);
+            } else {
+                lines.add("D | 1 | deadline " + i + " | 2024-03-04 1800");
+            }
+        }
+        Files.write(tmp, lines);
+        assertTrue(Files.size(tmp) > 1024 * 1024);
+
+        ArrayList<Task> sequential = new Storage(tmp.toString()).load();
+        Storage parallelStorage = new Storage(tmp.toString());
+        parallelStorage.setParallelLoading(true);
+        java.io.PrintStream originalErr = System.err;
+        java.io.ByteArrayOutputStream err = new java.io.ByteArrayOutputStream();
+        System.setErr(new java.io.PrintStream(err));
+        ArrayList<Task> parallel;
+        try {
+            parallel = parallelStorage.load();
+        } finally {
+            System.setErr(originalErr);
+        }
+
+        assertEquals(39998, parallel.size());
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).toFileFormat(), parallel.get(i).toFileFormat());
+        }
+        String warnings = err.toString();
+        assertTrue(warnings.contains("line 12346: D | 0 | corrupted 12345"), warnings);
+        assertTrue(warnings.contains("line 40000: D | 0 | corrupted 39999"), warnings);
+
+        Files.deleteIfExists(tmp);
+    }
+
+    @Test
+    public void binary_format_converts_losslessly_to_and_from_text() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-binary");
+        Path text = dir.resolve("tasks.txt");
+        java.util.List<String> lines = java.util.List.of(
+                "T | 1 | read book | 1",
+                "D | 0 | return b\u00f6\u00f6k | 2023-06-06 1800 | 5",
+                "E | 1 | project meeting | 1969-08-06 1400 | 1969-08-06 1600 | 3");
+        Files.write(text, lines);
+
+        Path binary = dir.resolve("tasks.bin");
+        Storage.convert(text.toString(), binary.toString());
+        byte[] bytes = Files.readAllBytes(binary);
+        assertEquals('C', bytes[0]);
+        assertEquals('B', bytes[1]);
+        assertEquals('X', bytes[2]);
+
+        ArrayList<Task> loaded = new Storage(binary.toString()).load();
+        assertEquals(3, loaded.size());
+        assertTrue(loaded.get(2) instanceof Event);
+
+        Path roundTrip = dir.resolve("round-trip.txt");
+        Storage.convert(binary.toString(), roundTrip.toString());
+        assertEquals(lines, Files.readAllLines(roundTrip));
+    }
+
+    @Test
+    public void binary_load_stops_at_corrupted_count_or_length() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-binary");
+        Path binary = dir.resolve("tasks.bin");
+        new Storage(binary.toString()).save(new ArrayList<>(List.of(new ToDo("a"), new ToDo("b"))));
+        byte[] bytes = Files.readAllBytes(binary);
+        int countOffset = 4;
+        int secondLengthOffset = bytes.length - 1 - Integer.BYTES;
+
+        ByteBuffer.wrap(bytes).putInt(countOffset, Integer.MAX_VALUE);
+        Files.write(binary, bytes);
+        assertEquals(2, new Storage(binary.toString()).load().size());
+
+        ByteBuffer.wrap(bytes).putInt(countOffset, -1);
+        Files.write(binary, bytes);
+        assertEquals(0, new Storage(binary.toString()).load().size());
+
+        ByteBuffer.wrap(bytes).putInt(countOffset, 2).putInt(secondLengthOffset, Integer.MAX_VALUE);
+        Files.write(binary, bytes);
+        ArrayList<Task> loaded = new Storage(binary.toString()).load();
+        assertEquals(1, loaded.size());
+        assertEquals("a", loaded.get(0).getDescription());
+    }
+
+    @Test
+    public void journal_replays_bulk_mark_and_delete_as_single_records() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-journal");
+        String path = dir.resolve("tasks.txt").toString();
+
+        Storage storage = new Storage(path, true);
+        ArrayList<Task> tasks = storage.load();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new ToDo("task " + i));
+            storage.saveAdd(tasks.get(i), tasks);
+        }
+        TaskSelection marked = TaskSelection.parse("1-4,8", 1);
+        TaskList list = new TaskList(tasks);
+        list.markTasks(marked, true);
+        storage.saveMark(marked, true, tasks);
+        TaskSelection deleted = TaskSelection.parse("2,3,9-10", 1);
+        list.removeTasks(deleted);
+        storage.saveDelete(deleted, tasks);
+        storage.close();
+
+        List<String> journal = Files.readAllLines(Path.of(path + ".journal"));
+        assertEquals(12, journal.size());
+        assertEquals("M | 0-3,7", journal.get(10));
+        assertEquals("X | 1-2,8-9", journal.get(11));
+
+        ArrayList<Task> loaded = new Storage(path, true).load();
+        assertEquals(6, loaded.size());
+        assertEquals("T | 1 | task 0 | 1", loaded.get(0).toFileFormat());
+        assertEquals("T | 1 | task 3 | 4", loaded.get(1).toFileFormat());
+        assertEquals("T | 0 | task 4 | 5", loaded.get(2).toFileFormat());
+        assertEquals("T | 1 | task 7 | 8", loaded.get(5).toFileFormat());
+    }
+
+    @Test
+    public void async_journal_with_snapshots_matches_in_memory_list() throws Exception {
+        for (Storage.Durability durability : new Storage.Durability[] {
+                Storage.Durability.ASYNC, Storage.Durability.PERIODIC_FSYNC}) {
+            Path dir = Files.createTempDirectory("chatterbox-async");
+            String path = dir.resolve("tasks.txt").toString();
+
+            Storage storage = new Storage(path, true, 7);
+            storage.setDurability(durability);
+            ArrayList<Task> tasks = storage.load();
+            for (int i = 0; i < 200; i++) {
+                tasks.add(new ToDo("task " + i));
+                storage.saveAdd(tasks.get(tasks.size() - 1), tasks);
+                if (i % 3 == 0) {
+                    tasks.get(tasks.size() / 2).markAsDone();
+                    storage.saveMark(tasks.size() / 2, true, tasks);
+                }
+                if (i % 5 == 0) {
+                    tasks.remove(0);
+                    storage.saveDelete(0, tasks);
+                }
+            }
+            storage.close();
+
+            ArrayList<Task> loaded = new Storage(path, true).load();
+            assertEquals(tasks.size(), loaded.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                assertEquals(tasks.get(i).toString(), loaded.get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    public void async_full_saves_are_coalesced_and_drained() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-async");
+        String path = dir.resolve("tasks.txt").toString();
+
+        Storage storage = new Storage(path);
+        storage.setDurability(Storage.Durability.ASYNC);
+        ArrayList<Task> tasks = storage.load();
+        for (int i = 0; i < 500; i++) {
+            tasks.add(new ToDo("task " + i));
+            storage.save(tasks);
+        }
+        tasks.get(0).markAsDone();
+        storage.save(tasks);
+        tasks.get(1).markAsDone();
+
+        storage.drain();
+        List<String> lines = Files.readAllLines(Path.of(path));
+        assertEquals(500, lines.size());
+        assertEquals("T | 1 | task 0", lines.get(0));
+        assertEquals("T | 0 | task 1", lines.get(1));
+        storage.close();
+    }
+
+    @Test
+    public void durability_names_are_parsed_ignoring_case() throws Exception {
+        assertEquals(Storage.Durability.SYNC, Storage.parseDurability("sync"));
+        assertEquals(Storage.Durability.PERIODIC_FSYNC, Storage.parseDurability("Periodic_Fsync"));
+        Exception ex = assertThrows(ChatterboxException.class, () -> Storage.parseDurability("fast"));
+        assertEquals("Unknown durability 'fast'. Please use sync, async or periodic_fsync.", ex.getMessage());
+    }
+
+    @Test
+    public void exit_command_drains_queued_changes() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-async");
+        String path = dir.resolve("tasks.txt").toString();
+
+        Storage storage = new Storage(path, true);
+        storage.setDurability(Storage.Durability.PERIODIC_FSYNC);
+        TaskList tasks = new TaskList(storage.load());
+        Ui ui = new Ui(InputStream.nullInputStream(), OutputStream.nullOutputStream());
+        Parser parser = new Parser();
+        parser.parseCommand("todo read book").execute(tasks, ui, storage);
+        parser.parseCommand("mark 1").execute(tasks, ui, storage);
+        parser.parseCommand("bye").execute(tasks, ui, storage);
+
+        assertEquals(List.of("A | T | 0 | read book | 1", "M | 0"), Files.readAllLines(Path.of(path + ".journal")));
+        storage.close();
+    }
+
+    @Test
+    public void mark_patches_status_in_place_after_full_save() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-patch");
+        for (String fileName : List.of("tasks.txt", "tasks.bin")) {
+            String path = dir.resolve(fileName).toString();
+            Storage storage = new Storage(path);
+            Metrics metrics = new Metrics();
+            storage.setMetrics(metrics);
+            ArrayList<Task> tasks = storage.load();
+            tasks.add(new ToDo("caf\u00e9 \u2615"));
+            tasks.add(new Deadline("return book", LocalDateTime.of(2025, 12, 25, 10, 30)));
+            tasks.add(new ToDo("read"));
+            storage.save(tasks);
+            long bytesWritten = metrics.getBytesWritten();
+
+            tasks.get(2).markAsDone();
+            storage.saveMark(2, true, tasks);
+            TaskSelection selection = TaskSelection.parse("1-2", 1);
+            tasks.get(0).markAsDone();
+            tasks.get(1).markAsDone();
+            storage.saveMark(selection, true, tasks);
+            tasks.get(0).markAsNotDone();
+            storage.saveMark(0, false, tasks);
+            assertEquals(bytesWritten + 4, metrics.getBytesWritten());
+            assertSameTasks(tasks, new Storage(path).load());
+
+            // An addition changes the layout, so the next mark is saved in full
+            tasks.add(new ToDo("write"));
+            tasks.get(3).markAsDone();
+            storage.beginBatch();
+            storage.saveAdd(tasks.get(3), tasks);
+            storage.saveMark(3, true, tasks);
+            storage.endBatch(tasks);
+            assertSameTasks(tasks, new Storage(path).load());
+            bytesWritten = metrics.getBytesWritten();
+            tasks.get(3).markAsNotDone();
+            storage.saveMark(3, false, tasks);
+            assertEquals(bytesWritten + 1, metrics.getBytesWritten());
+            assertSameTasks(tasks, new Storage(path).load());
+            storage.close();
+        }
+    }
+
+    @Test
+    public void async_mark_is_saved_in_full() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-patch");
+        String path = dir.resolve("tasks.txt").toString();
+
+        Storage storage = new Storage(path);
+        storage.setDurability(Storage.Durability.ASYNC);
+        ArrayList<Task> tasks = storage.load();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new ToDo("task " + i));
+            storage.save(tasks);
+            if (i % 10 == 0) {
+                tasks.get(i / 2).markAsDone();
+                storage.saveMark(i / 2, true, tasks);
+            }
+        }
+        tasks.get(99).markAsDone();
+        storage.saveMark(99, true, tasks);
+
+        storage.drain();
+        assertSameTasks(tasks, new Storage(path).load());
+        storage.close();
+    }
+
+    @Test
+    public void mark_saves_in_full_when_data_file_was_rewritten_elsewhere() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-patch");
+        Path path = dir.resolve("tasks.txt");
+        Storage storage = new Storage(path.toString());
+        ArrayList<Task> tasks = storage.load();
+        tasks.add(new ToDo("a"));
+        tasks.add(new ToDo("bb"));
+        storage.save(tasks);
+
+        // Same size, different layout, so only the modification time tells them apart
+        Files.writeString(path, "T | 0 | bb | 2" + System.lineSeparator() + "T | 0 | a | 1" + System.lineSeparator());
+        Files.setLastModifiedTime(path, java.nio.file.attribute.FileTime.fromMillis(0));
+        tasks.get(0).markAsDone();
+        storage.saveMark(0, true, tasks);
+        storage.close();
+
+        assertEquals(List.of("T | 1 | a | 1", "T | 0 | bb | 2"), describe(new Storage(path.toString()).load()));
+    }
+
+    private static void assertSameTasks(List<Task> expected, List<Task> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    private static List<String> describe(List<Task> tasks) {
+        ArrayList<String> lines = new ArrayList<>();
+        for (Task task : tasks) {
+            lines.add(task.toFileFormat());
+        }
+        return lines;
+    }
 }
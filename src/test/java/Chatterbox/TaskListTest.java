@@ -2,8 +2,12 @@ package Chatterbox;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -40,7 +44,326 @@ public class TaskListTest {
         list.addTask(d);
         list.addTask(e);
 
-        ArrayList<Task> found = list.findTasksOnDate(ddate);
+        ArrayList<IndexedTask> found = list.findTasksOnDate(ddate);
         assertEquals(2, found.size());
     }
+
+    @Test
+    public void findTasksByKeyword_matches_linear_substring_search() throws Exception {
+        String[] words = {"Read", "book", "return", "bookshelf", "meeting", "ABC", "ab", "cab", "b"};
+        Random random = new Random(42);
+        TaskList list = new TaskList();
+        ArrayList<Task> reference = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String description = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            ToDo task = new ToDo(description);
+            list.addTask(task);
+            reference.add(task);
+            if (i % 7 == 0) {
+                // Build the index part-way through so later adds and removes are incremental
+                list.findTasksByKeyword("book");
+            }
+            if (i % 5 == 4) {
+                int index = random.nextInt(reference.size());
+                list.removeTask(index);
+                reference.remove(index);
+            }
+        }
+
+        String[] keywords = {"book", "BOOK", "ok b", "shelf", "ab", "b", "cab", "read book", "xyz", "ing"};
+        for (String keyword : keywords) {
+            ArrayList<Task> expected = new ArrayList<>();
+            for (Task task : reference) {
+                if (task.getDescription().toLowerCase().contains(keyword.toLowerCase())) {
+                    expected.add(task);
+                }
+            }
+            assertFoundInOrder(expected, list, list.findTasksByKeyword(keyword));
+        }
+    }
+
+    @Test
+    public void findTasksBetweenDates_matches_linear_overlap_search() throws Exception {
+        Random random = new Random(7);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        TaskList list = new TaskList();
+        ArrayList<Task> reference = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            LocalDateTime start = base.plusDays(random.nextInt(90)).plusHours(random.nextInt(12));
+            Task task;
+            switch (i % 3) {
+            case 0:
+                task = new ToDo("todo " + i);
+                break;
+            case 1:
+                task = new Deadline("deadline " + i, start);
+                break;
+            default:
+                task = new Event("event " + i, start, start.plusDays(random.nextInt(10)));
+                break;
+            }
+            list.addTask(task);
+            reference.add(task);
+            if (i == 100) {
+                // Build the index part-way through so later adds and removes are incremental
+                list.findTasksOnDate(base);
+            }
+            if (i % 4 == 3) {
+                int index = random.nextInt(reference.size());
+                list.removeTask(index);
+                reference.remove(index);
+            }
+        }
+
+        for (int query = 0; query < 50; query++) {
+            LocalDate start = base.toLocalDate().plusDays(random.nextInt(100));
+            LocalDate end = start.plusDays(random.nextInt(3) == 0 ? 0 : random.nextInt(20));
+            ArrayList<Task> expected = new ArrayList<>();
+            for (Task task : reference) {
+                if (task instanceof Deadline) {
+                    LocalDate by = ((Deadline) task).getBy().toLocalDate();
+                    if (!by.isBefore(start) && !by.isAfter(end)) {
+                        expected.add(task);
+                    }
+                } else if (task instanceof Event) {
+                    Event event = (Event) task;
+                    if (!event.getFrom().toLocalDate().isAfter(end) && !event.getTo().toLocalDate().isBefore(start)) {
+                        expected.add(task);
+                    }
+                }
+            }
+            assertFoundInOrder(expected, list, list.findTasksBetweenDates(start.atStartOfDay(), end.atStartOfDay()));
+        }
+    }
+
+    @Test
+    public void findTasks_matches_filtered_and_sorted_reference() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        TaskView[] views = {
+            new TaskView(true, TaskView.Status.ALL, null),
+            new TaskView(true, TaskView.Status.PENDING, Task.TaskType.DEADLINE),
+            new TaskView(true, TaskView.Status.DONE, null),
+            new TaskView(false, TaskView.Status.PENDING, null),
+            new TaskView(false, TaskView.Status.ALL, Task.TaskType.EVENT)
+        };
+        for (TaskList list : List.of(new TaskList(), new ConcurrentTaskList())) {
+            Random random = new Random(11);
+            ArrayList<Task> reference = new ArrayList<>();
+            for (int round = 0; round < 1500; round++) {
+                int action = random.nextInt(10);
+                if (action < 5 || reference.isEmpty()) {
+                    LocalDateTime start = base.plusDays(random.nextInt(60)).plusHours(random.nextInt(12));
+                    Task task = round % 3 == 0 ? new ToDo("todo " + round)
+                            : round % 3 == 1 ? new Deadline("deadline " + round, start)
+                            : new Event("event " + round, start, start.plusDays(2));
+                    list.addTask(task);
+                    reference.add(task);
+                } else if (action < 8) {
+                    list.markTask(random.nextInt(reference.size()), random.nextBoolean());
+                } else if (action < 9) {
+                    int index = random.nextInt(reference.size());
+                    Task removed = list.removeTask(index);
+                    reference.remove(index);
+                    if (random.nextBoolean()) {
+                        int to = random.nextInt(reference.size() + 1);
+                        list.insertTask(to, removed);
+                        reference.add(to, removed);
+                    }
+                } else {
+                    // Views in between changes build the date order part-way through
+                    list.findTasks(views[random.nextInt(views.length)]);
+                }
+            }
+
+            for (TaskView view : views) {
+                ArrayList<Task> expected = new ArrayList<>();
+                for (Task task : reference) {
+                    if (view.matches(task)) {
+                        expected.add(task);
+                    }
+                }
+                if (view.isSortedByDate()) {
+                    expected.sort(Comparator.comparing(
+                            (Task task) -> task.getDateTime() == null ? LocalDateTime.MAX : task.getDateTime())
+                            .thenComparingInt(Task::getId));
+                }
+                ArrayList<IndexedTask> found = list.findTasks(view);
+                assertEquals(expected.size(), found.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertSame(expected.get(i), found.get(i).getTask());
+                    assertSame(expected.get(i), list.getTask(found.get(i).getIndex()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findPendingTasksBetween_matches_linear_search_in_every_list() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (TaskList list : List.of(new TaskList(), new ConcurrentTaskList(), new PackedTaskList())) {
+            Random random = new Random(5);
+            ArrayList<String> reference = new ArrayList<>();
+            ArrayList<LocalDateTime> dates = new ArrayList<>();
+            for (int i = 0; i < 600; i++) {
+                LocalDateTime start = base.plusHours(random.nextInt(24 * 30));
+                Task task = i % 3 == 0 ? new ToDo("todo " + i)
+                        : i % 3 == 1 ? new Deadline("deadline " + i, start)
+                        : new Event("event " + i, start, start.plusHours(3));
+                list.addTask(task);
+                reference.add(null);
+                dates.add(i % 3 == 0 ? null : start);
+                if (i == 200) {
+                    list.findPendingTasksBetween(base, base.plusDays(1), Task.TaskType.DEADLINE);
+                }
+                if (i % 5 == 4) {
+                    list.markTask(random.nextInt(list.size()), random.nextBoolean());
+                }
+            }
+            for (int i = 0; i < list.size(); i++) {
+                reference.set(i, list.getTask(i).toFileFormat());
+            }
+
+            for (int query = 0; query < 40; query++) {
+                LocalDateTime start = base.plusHours(random.nextInt(24 * 30));
+                LocalDateTime end = start.plusHours(random.nextInt(72));
+                boolean isDeadlinesOnly = query % 2 == 0;
+                ArrayList<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < reference.size(); i++) {
+                    LocalDateTime date = dates.get(i);
+                    if (date != null && !date.isBefore(start) && date.isBefore(end)
+                            && reference.get(i).contains(" | 0 | ")
+                            && (!isDeadlinesOnly || reference.get(i).startsWith("D"))) {
+                        expected.add(i);
+                    }
+                }
+                expected.sort(Comparator.comparing((Integer i) -> dates.get(i)).thenComparingInt(i -> i));
+
+                ArrayList<IndexedTask> found = isDeadlinesOnly
+                        ? list.findPendingTasksBetween(start, end, Task.TaskType.DEADLINE)
+                        : list.findPendingTasksBetween(start, end, Task.TaskType.DEADLINE, Task.TaskType.EVENT);
+                assertEquals(expected.size(), found.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals((int) expected.get(i), found.get(i).getIndex());
+                    assertEquals(reference.get(expected.get(i)), found.get(i).getTask().toFileFormat());
+                }
+            }
+        }
+    }
+
+    private static void assertFoundInOrder(ArrayList<Task> expected, TaskList list, ArrayList<IndexedTask> found)
+            throws Exception {
+        assertEquals(expected.size(), found.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), found.get(i).getTask());
+            assertSame(expected.get(i), list.getTask(found.get(i).getIndex()));
+        }
+    }
+
+    @Test
+    public void removeTasks_and_markTasks_apply_whole_selection() throws Exception {
+        TaskList list = new TaskList();
+        ArrayList<Task> reference = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            ToDo task = new ToDo("task " + i);
+            list.addTask(task);
+            reference.add(task);
+        }
+        list.findTasksByKeyword("task 2");
+
+        TaskSelection selection = TaskSelection.parse("250-260,3,7,10-50,45-60", 1);
+        assertEquals("3,7,10-60,250-260", selection.format(1));
+        list.markTasks(selection, true);
+        assertTrue(list.getTask(2).isDone());
+        assertTrue(list.getTask(259).isDone());
+        assertFalse(list.getTask(260).isDone());
+
+        List<Task> removed = list.removeTasks(selection);
+        assertEquals(64, removed.size());
+        for (int i = reference.size() - 1; i >= 0; i--) {
+            if (removed.contains(reference.get(i))) {
+                reference.remove(i);
+            }
+        }
+        assertEquals(reference, list.getAllTasks());
+        assertTrue(list.findTasksByKeyword("task 25").stream().allMatch(found -> !found.getTask().isDone()));
+        ArrayList<Task> expected = new ArrayList<>();
+        for (Task task : reference) {
+            if (task.getDescription().contains("task 2")) {
+                expected.add(task);
+            }
+        }
+        assertFoundInOrder(expected, list, list.findTasksByKeyword("task 2"));
+
+        TaskSelection outOfRange = TaskSelection.parse("1,500", 1);
+        Exception ex = assertThrows(ChatterboxException.class, () -> list.removeTasks(outOfRange));
+        assertEquals("Task number 500 does not exist.", ex.getMessage());
+        assertEquals(reference.size(), list.size());
+    }
+
+    @Test
+    public void ids_stay_stable_through_adds_and_removals() throws Exception {
+        Random random = new Random(21);
+        TaskList list = new TaskList();
+        ArrayList<Task> reference = new ArrayList<>();
+        ArrayList<Integer> removedIds = new ArrayList<>();
+        int nextId = 1;
+        for (int round = 0; round < 3000; round++) {
+            int choice = random.nextInt(10);
+            if (choice < 6 || reference.isEmpty()) {
+                ToDo task = new ToDo("task " + round);
+                list.addTask(task);
+                reference.add(task);
+                assertEquals(nextId++, task.getId());
+            } else if (choice < 9) {
+                int index = random.nextInt(reference.size());
+                removedIds.add(list.removeTask(index).getId());
+                reference.remove(index);
+            } else {
+                int first = random.nextInt(reference.size());
+                int last = Math.min(reference.size() - 1, first + random.nextInt(reference.size() / 4 + 1));
+                TaskSelection selection = TaskSelection.parse((first + 1) + "-" + (last + 1), 1);
+                for (Task removed : list.removeTasks(selection)) {
+                    removedIds.add(removed.getId());
+                }
+                reference.subList(first, last + 1).clear();
+            }
+            if (round % 100 == 0) {
+                list.findTasksByKeyword("task 1");
+            }
+        }
+
+        assertEquals(reference, list.getAllTasks());
+        for (int i = 0; i < reference.size(); i++) {
+            Task task = reference.get(i);
+            assertSame(task, list.getTaskById(task.getId()));
+            assertEquals(i, list.getIndexById(task.getId()));
+            if (i > 0) {
+                assertTrue(reference.get(i - 1).getId() < task.getId());
+            }
+        }
+        for (int id : removedIds) {
+            assertThrows(ChatterboxException.class, () -> list.getTaskById(id));
+        }
+
+        ArrayList<Task> expected = new ArrayList<>();
+        for (Task task : reference) {
+            if (task.getDescription().contains("task 1")) {
+                expected.add(task);
+            }
+        }
+        assertFoundInOrder(expected, list, list.findTasksByKeyword("task 1"));
+    }
+
+    @Test
+    public void duplicate_ids_are_reassigned_when_list_is_created() throws Exception {
+        ArrayList<Task> tasks = new ArrayList<>(List.of(new ToDo("a"), new ToDo("b"), new ToDo("c")));
+        tasks.get(0).setId(5);
+        tasks.get(1).setId(5);
+
+        TaskList list = new TaskList(tasks);
+        assertEquals(5, tasks.get(0).getId());
+        assertEquals(6, tasks.get(1).getId());
+        assertEquals(7, tasks.get(2).getId());
+        assertSame(tasks.get(1), list.getTaskById(6));
+    }
 }
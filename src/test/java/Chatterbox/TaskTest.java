@@ -3,6 +3,9 @@ package Chatterbox;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -36,4 +39,42 @@ public class TaskTest {
         assertEquals(from, e.getFrom());
         assertEquals(to, e.getTo());
     }
+
+    @Test
+    public void dates_are_formatted_like_the_date_patterns() {
+        DateTimeFormatter display = DateTimeFormatter.ofPattern("MMM dd yyyy, h:mm a", Locale.ENGLISH);
+        DateTimeFormatter file = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
+        Random random = new Random(13);
+        for (int i = 0; i < 2000; i++) {
+            LocalDateTime from = LocalDateTime.of(1 + random.nextInt(9999), 1 + random.nextInt(12),
+                    1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+            LocalDateTime to = i % 100 == 0 ? LocalDateTime.of(10000, 1, 1, 0, 0) : from.plusHours(12);
+            Event event = new Event("e", from, to);
+            assertEquals("[E][ ] e (from: " + from.format(display) + " to: " + to.format(display) + ")",
+                    event.toString());
+            assertEquals("E | 0 | e | " + from.format(file) + " | " + to.format(file), event.toFileFormat());
+        }
+        assertEquals("[D][ ] d (by: Mar 05 2025, 12:00 AM)", new Deadline("d", LocalDateTime.of(2025, 3, 5, 0, 0))
+                .toString());
+        assertEquals("[D][ ] d (by: Mar 05 2025, 12:07 PM)", new Deadline("d", LocalDateTime.of(2025, 3, 5, 12, 7))
+                .toString());
+    }
+
+    @Test
+    public void strings_are_kept_until_the_task_changes() {
+        Deadline d = new Deadline("return book", LocalDateTime.of(2023, 6, 6, 18, 0));
+        String display = d.toString();
+        String file = d.toFileFormat();
+        assertSame(display, d.toString());
+        assertSame(file, d.toFileFormat());
+
+        d.markAsDone();
+        assertEquals("[D][X] return book (by: Jun 06 2023, 6:00 PM)", d.toString());
+        assertEquals("D | 1 | return book | 2023-06-06 1800", d.toFileFormat());
+        d.setId(42);
+        assertEquals("D | 1 | return book | 2023-06-06 1800 | 42", d.toFileFormat());
+        d.markAsNotDone();
+        assertEquals(display, d.toString());
+        assertEquals("D | 0 | return book | 2023-06-06 1800 | 42", d.toFileFormat());
+    }
 }
@@ -0,0 +1,186 @@
+package Chatterbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class UndoHistoryTest {
+
+    @Test
+    public void removed_tasks_are_put_back_in_place_in_every_list() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-undo");
+        MappedTaskList mapped = new MappedTaskList(dir.resolve("tasks").toString());
+        for (TaskList list : List.of(new TaskList(), new PackedTaskList(), new ConcurrentTaskList(), mapped)) {
+            Random random = new Random(3);
+            LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+            ArrayList<String> reference = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                Task task = i % 2 == 0 ? new ToDo("todo " + i) : new Deadline("deadline " + i, base.plusDays(i % 40));
+                list.addTask(task);
+                reference.add(task.toFileFormat());
+            }
+            list.findTasksByKeyword("todo 1");
+
+            // Removals are undone in reverse order, like a stack of undo steps
+            ArrayList<TaskSelection> removedSelections = new ArrayList<>();
+            ArrayList<List<Task>> removedTasks = new ArrayList<>();
+            for (int round = 0; round < 400; round++) {
+                if (list.size() > 1000 && random.nextInt(3) > 0 || removedSelections.isEmpty()) {
+                    int first = random.nextInt(list.size());
+                    TaskSelection selection;
+                    if (random.nextBoolean()) {
+                        selection = TaskSelection.of(first);
+                        removedTasks.add(List.of(list.removeTask(first)));
+                    } else {
+                        int last = Math.min(list.size() - 1, first + random.nextInt(random.nextBoolean() ? 5 : 400));
+                        selection = TaskSelection.parse(first + "-" + last + "," + random.nextInt(list.size()), 0);
+                        removedTasks.add(list.removeTasks(selection));
+                    }
+                    removedSelections.add(selection);
+                } else {
+                    int last = removedSelections.size() - 1;
+                    TaskSelection selection = removedSelections.remove(last);
+                    List<Task> tasks = removedTasks.remove(last);
+                    if (tasks.size() == 1) {
+                        list.insertTask(selection.getFirst(), tasks.get(0));
+                    } else {
+                        list.insertTasks(selection, tasks);
+                    }
+                }
+            }
+            while (!removedSelections.isEmpty()) {
+                int last = removedSelections.size() - 1;
+                list.insertTasks(removedSelections.remove(last), removedTasks.remove(last));
+            }
+            // Inserting into a full chunk of a ConcurrentTaskList splits it
+            Task extra = new ToDo("extra");
+            list.insertTask(10, extra);
+            assertEquals("extra", list.getTask(10).getDescription());
+            assertEquals("extra", list.getTask(list.getIndexById(extra.getId())).getDescription());
+            list.removeTask(10);
+
+            assertEquals(reference.size(), list.size());
+            for (int i = 0; i < reference.size(); i++) {
+                assertEquals(reference.get(i), list.getTask(i).toFileFormat());
+            }
+            assertEquals(2999, list.getIndexById(3000));
+            long expectedMatches = reference.stream().filter(line -> line.contains("| todo 1")).count();
+            assertEquals(expectedMatches, list.findTasksByKeyword("todo 1").size());
+            assertEquals(75, list.findTasksBetweenDates(base.plusDays(3), base.plusDays(3)).size());
+            assertThrows(ChatterboxException.class, () -> list.insertTask(list.size() + 1, new ToDo("x")));
+        }
+        mapped.close();
+    }
+
+    @Test
+    public void undo_and_redo_step_through_changes_and_are_persisted() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-undo");
+        String path = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(path, true);
+        storage.setDurability(Storage.Durability.SYNC);
+        TaskList tasks = new TaskList(storage.load());
+        Ui ui = new Ui(new ByteArrayInputStream(new byte[0]), OutputStream.nullOutputStream());
+        UndoHistory history = new UndoHistory();
+        Parser parser = new Parser(new Metrics(), history);
+
+        String[] inputs = {
+            "todo a", "todo b", "deadline c /by 2025-03-01", "event d /from 2025-03-02 /to 2025-03-03",
+            "mark 2", "mark 1-3", "delete 1", "todo e", "delete 1,3", "unmark 1"
+        };
+        ArrayList<List<String>> states = new ArrayList<>();
+        states.add(describe(tasks));
+        for (String input : inputs) {
+            run(parser.parseCommand(input), history, tasks, ui, storage);
+            states.add(describe(tasks));
+        }
+
+        for (int i = states.size() - 2; i >= 0; i--) {
+            parser.parseCommand("undo").execute(tasks, ui, storage);
+            assertEquals(states.get(i), describe(tasks));
+        }
+        Exception ex = assertThrows(ChatterboxException.class,
+            () -> parser.parseCommand("undo").execute(tasks, ui, storage));
+        assertEquals("There is nothing to undo.", ex.getMessage());
+
+        for (int i = 1; i < 7; i++) {
+            parser.parseCommand("redo").execute(tasks, ui, storage);
+            assertEquals(states.get(i), describe(tasks));
+        }
+        storage.close();
+        assertEquals(describe(tasks), describe(new TaskList(new Storage(path, true).load())));
+
+        // A new change forgets the changes that are still undone
+        run(parser.parseCommand("todo f"), history, tasks, ui, storage);
+        ex = assertThrows(ChatterboxException.class, () -> parser.parseCommand("redo").execute(tasks, ui, storage));
+        assertEquals("There is nothing to redo.", ex.getMessage());
+    }
+
+    @Test
+    public void history_forgets_oldest_changes_when_full() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-undo");
+        Storage storage = new Storage(dir.resolve("tasks.txt").toString());
+        TaskList tasks = new TaskList();
+        Ui ui = new Ui(new ByteArrayInputStream(new byte[0]), OutputStream.nullOutputStream());
+        UndoHistory history = new UndoHistory(3);
+        Parser parser = new Parser(new Metrics(), history);
+        for (int i = 0; i < 5; i++) {
+            run(parser.parseCommand("todo task " + i), history, tasks, ui, storage);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            history.undo(tasks, ui, storage);
+        }
+        assertThrows(ChatterboxException.class, () -> history.undo(tasks, ui, storage));
+        assertEquals(2, tasks.size());
+        history.redo(tasks, ui, storage);
+        assertEquals("task 2", tasks.getTask(2).getDescription());
+    }
+
+    @Test
+    public void session_undoes_its_own_changes() throws Exception {
+        Path dir = Files.createTempDirectory("chatterbox-undo");
+        Storage storage = new Storage(dir.resolve("tasks.txt").toString(), true);
+        TaskList tasks = new TaskList(storage.load());
+        String script = String.join(System.lineSeparator(),
+                "todo a", "todo b", "delete 1", "undo", "undo", "redo", "list", "bye") + System.lineSeparator();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Ui ui = new Ui(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)), output);
+
+        new Chatterbox(ui, tasks, storage, new Metrics()).runSession();
+        storage.close();
+
+        assertEquals(List.of("T | 0 | a | 1", "T | 0 | b | 2"), describe(tasks));
+        String shown = output.toString(StandardCharsets.UTF_8);
+        assertTrue(shown.contains(" Undoing your last change:"));
+        assertTrue(shown.contains(" OK, I've put this task back:"));
+        assertTrue(shown.contains(" Redoing your last undone change:"));
+    }
+
+    private static void run(Command command, UndoHistory history, TaskList tasks, Ui ui, Storage storage)
+            throws ChatterboxException {
+        command.execute(tasks, ui, storage);
+        Command inverse = command.getInverse();
+        if (inverse != null) {
+            history.record(inverse);
+        }
+    }
+
+    private static List<String> describe(TaskList tasks) {
+        ArrayList<String> lines = new ArrayList<>();
+        for (Task task : tasks.getAllTasks()) {
+            lines.add(task.toFileFormat());
+        }
+        return lines;
+    }
+}